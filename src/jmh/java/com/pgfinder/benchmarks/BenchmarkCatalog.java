@@ -0,0 +1,76 @@
+package com.pgfinder.benchmarks;
+
+import com.pgfinder.model.PG;
+import com.pgfinder.model.User;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic in-memory listings shaped like the ones the API returns, with every column filled in,
+// so serialization and filtering benchmarks see realistic payloads
+final class BenchmarkCatalog {
+
+    static final String[] CITIES = {"Bangalore", "Pune", "Hyderabad", "Chennai", "Mumbai", "Delhi", "Kolkata", "Noida"};
+
+    private BenchmarkCatalog() {
+    }
+
+    static List<PG> listings(int count, long seed) {
+        Random random = new Random(seed);
+        User owner = new User("Listing Owner", "owner@example.com", "$2a$10$notARealHash", User.UserType.OWNER);
+        owner.setId(7L);
+        owner.setPhoneNumber("+919876543210");
+
+        List<PG> pgs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            PG.PGType pgType = PG.PGType.values()[random.nextInt(PG.PGType.values().length)];
+            PG.GenderPreference genderPreference = PG.GenderPreference.values()[random.nextInt(PG.GenderPreference.values().length)];
+            int totalRooms = 5 + random.nextInt(40);
+            PG pg = new PG("Sunrise Residency " + i, (100 + i) + ", 4th Cross, Koramangala", city, "Karnataka",
+                    "5600" + (10 + random.nextInt(90)), BigDecimal.valueOf(4000 + random.nextInt(26000)),
+                    pgType, genderPreference, totalRooms, random.nextInt(totalRooms + 1), owner);
+            pg.setId((long) i + 1);
+            pg.setDescription("Fully furnished rooms close to the metro, with power backup, RO water and a "
+                    + "24x7 warden. Walking distance from tech parks and colleges.");
+            pg.setLatitude(BigDecimal.valueOf(12.9 + random.nextDouble() / 10).setScale(8, RoundingMode.HALF_UP));
+            pg.setLongitude(BigDecimal.valueOf(77.5 + random.nextDouble() / 10).setScale(8, RoundingMode.HALF_UP));
+            pg.setSecurityDeposit(pg.getRent().multiply(BigDecimal.valueOf(2)));
+            pg.setMaxOccupancyPerRoom(1 + random.nextInt(3));
+            pg.setWifiAvailable(random.nextBoolean());
+            pg.setAcAvailable(random.nextInt(3) == 0);
+            pg.setParkingAvailable(random.nextBoolean());
+            pg.setMealsProvided(random.nextBoolean());
+            pg.setContactPerson("Ramesh Kumar");
+            pg.setContactPhone("+919812345678");
+            pg.setContactEmail("contact" + i + "@example.com");
+            pg.setIsVerified(random.nextInt(4) != 0);
+            pg.setRating(BigDecimal.valueOf(random.nextInt(51), 1));
+            pg.setTotalReviews(random.nextInt(200));
+            pg.setFavoriteCount(random.nextInt(500));
+            pg.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0).plusHours(i));
+            pg.setUpdatedAt(pg.getCreatedAt().plusDays(3));
+            // Maintained by the database in the app, so there are no setters
+            set(pg, "primaryImageId", (long) i * 10 + 1);
+            set(pg, "primaryImageUrl", "/api/images/pg-images/ab/cd/" + Long.toHexString(random.nextLong()) + ".jpg");
+            set(pg, "primaryImageWidth", 1600);
+            set(pg, "primaryImageHeight", 1200);
+            set(pg, "primaryImageDominantColor", "#8a7f6c");
+            set(pg, "primaryImageBlurHash", "LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+            pgs.add(pg);
+        }
+        return pgs;
+    }
+
+    private static void set(PG pg, String name, Object value) {
+        Field field = ReflectionUtils.findField(PG.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, pg, value);
+    }
+}
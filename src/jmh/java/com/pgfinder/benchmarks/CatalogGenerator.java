@@ -0,0 +1,696 @@
+package com.pgfinder.benchmarks;
+
+import com.pgfinder.PgFinderApplication;
+import com.pgfinder.dto.ImageMetadata;
+import com.pgfinder.service.ImageMetadataService;
+import com.pgfinder.storage.ImageStorage;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+
+// Synthetic catalog at production scale: users, listings, image metadata and reviews, appended to
+// whatever is already in the database. Shapes follow what the live data looks like:
+// - city popularity is Zipf-distributed (skew=1.1 by default), so a few metros hold most listings
+// - each city has its own rent range, and rent is log-normal inside it with a premium per locality
+// - listings cluster around a handful of locality centers per city instead of spreading evenly
+// - review counts per listing are heavy-tailed, older listings collect more, and the listing's
+//   rating and total_reviews match its reviews exactly
+// - a few owners hold many listings and a few users write most reviews
+// - image metadata rows point at a small pool of real JPEGs, as deduplicated uploads do
+//
+// Rows are streamed with COPY on PostgreSQL and batched INSERTs elsewhere (H2). Apart from timestamps,
+// which are relative to now, every value derives from the seed, so the same options give the same catalog.
+//
+//   mvn -Pbenchmarks compile exec:exec -Dbenchmark.main=com.pgfinder.benchmarks.CatalogGenerator \
+//       -Dbenchmark.args="pgs=1000000 users=2000000 reviews=20000000 images=5000000 \
+//           --spring.datasource.url=jdbc:postgresql://localhost:5432/pgfinder_large"
+//
+// The standalone run boots the application without its web server, so Hibernate creates the schema
+// and image files go through the configured ImageStorage; arguments starting with -- are passed to
+// Spring. Every generated account has the password in PASSWORD.
+//
+// Options (key=value): pgs (100000), users (pgs x 2), reviews (pgs x 20), images (metadata rows, pgs x 5),
+// image-files (distinct JPEGs behind them, 200), seed (42), skew (1.1).
+public class CatalogGenerator {
+
+    static final String PASSWORD = "synthetic123";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int COPY_BUFFER_CHARS = 1 << 20;
+    private static final long PROGRESS_EVERY = 1_000_000;
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private static final int HISTORY_MINUTES = 3 * 365 * 24 * 60;
+
+    // name, state, min rent, max rent, latitude, longitude; in order of popularity
+    static final Object[][] CITIES = {
+            {"Bangalore", "Karnataka", 6000, 30000, 12.9716, 77.5946},
+            {"Pune", "Maharashtra", 5500, 24000, 18.5204, 73.8567},
+            {"Hyderabad", "Telangana", 5000, 22000, 17.3850, 78.4867},
+            {"Delhi", "Delhi", 7000, 32000, 28.6139, 77.2090},
+            {"Mumbai", "Maharashtra", 9000, 45000, 19.0760, 72.8777},
+            {"Chennai", "Tamil Nadu", 5000, 20000, 13.0827, 80.2707},
+            {"Noida", "Uttar Pradesh", 5500, 18000, 28.5355, 77.3910},
+            {"Gurgaon", "Haryana", 7000, 28000, 28.4595, 77.0266},
+            {"Kolkata", "West Bengal", 4000, 15000, 22.5726, 88.3639},
+            {"Ahmedabad", "Gujarat", 4000, 14000, 23.0225, 72.5714},
+            {"Indore", "Madhya Pradesh", 3500, 11000, 22.7196, 75.8577},
+            {"Jaipur", "Rajasthan", 3500, 12000, 26.9124, 75.7873},
+            {"Chandigarh", "Chandigarh", 5000, 16000, 30.7333, 76.7794},
+            {"Kochi", "Kerala", 4000, 14000, 9.9312, 76.2673},
+            {"Coimbatore", "Tamil Nadu", 3500, 11000, 11.0168, 76.9558},
+            {"Lucknow", "Uttar Pradesh", 3500, 11000, 26.8467, 80.9462},
+            {"Bhubaneswar", "Odisha", 3000, 10000, 20.2961, 85.8245},
+            {"Nagpur", "Maharashtra", 3000, 10000, 21.1458, 79.0882},
+            {"Visakhapatnam", "Andhra Pradesh", 3000, 10000, 17.6868, 83.2185},
+            {"Mysore", "Karnataka", 3000, 9000, 12.2958, 76.6394},
+    };
+
+    static final String[] LOCALITIES = {"Koramangala", "HSR Layout", "Whitefield", "Electronic City", "Baner",
+            "Hinjewadi", "Kothrud", "Madhapur", "Gachibowli", "Kondapur", "Andheri", "Powai", "Velachery",
+            "Salt Lake", "Sector 62", "Lajpat Nagar", "Malviya Nagar", "Civil Lines", "Old Town", "Station Road"};
+
+    private static final String[] NAMES = {"Sunrise", "Green Valley", "Comfort", "Urban Nest", "Royal", "Shanti",
+            "Lotus", "Silver Oak", "Harmony", "Sai", "Elite", "Cozy Corner", "Metro", "Galaxy", "Zolo", "Stanza"};
+
+    private static final String[] REVIEW_COMMENTS = {"Clean rooms and good food.", "Owner is responsive.",
+            "Bit noisy in the evenings but close to the office.", "Wifi drops sometimes.",
+            "Great location, fair rent.", "Would not stay again.", "Food is repetitive, rooms are fine.",
+            "Safe for women, strict timings.", null};
+
+    private static final String[] USER_COLUMNS = {"id", "name", "email", "password", "phone_number", "user_type",
+            "is_active", "is_verified", "created_at", "updated_at"};
+
+    private static final String[] PG_COLUMNS = {"id", "name", "description", "address", "city", "state", "pincode",
+            "latitude", "longitude", "rent", "security_deposit", "pg_type", "gender_preference", "total_rooms",
+            "available_rooms", "max_occupancy_per_room", "wifi_available", "ac_available", "parking_available",
+            "laundry_available", "kitchen_available", "meals_provided", "cleaning_service", "smoking_allowed",
+            "drinking_allowed", "visitors_allowed", "pets_allowed", "contact_person", "contact_phone", "contact_email",
+            "is_active", "is_verified", "rating", "total_reviews", "favorite_count", "owner_id", "primary_image_id",
+            "primary_image_url", "primary_image_width", "primary_image_height", "primary_image_dominant_color",
+            "primary_image_blur_hash", "created_at", "updated_at"};
+
+    private static final String[] IMAGE_COLUMNS = {"id", "image_url", "caption", "content_hash", "storage_key",
+            "width", "height", "byte_size", "dominant_color", "blur_hash", "is_primary", "uploaded_at", "pg_id"};
+
+    private static final String[] REVIEW_COLUMNS = {"id", "rating", "comment", "created_at", "pg_id", "user_id"};
+
+    private static final String[] PG_TYPES = {"BOYS", "GIRLS", "COED"};
+    private static final String[] GENDER_PREFERENCES = {"MALE_ONLY", "FEMALE_ONLY", "MIXED"};
+    private static final String[] CAPTIONS = {"Room", "Bathroom", "Kitchen", "Common area", "Building", null};
+
+    // One account in twenty owns listings
+    private static final int OWNER_EVERY = 20;
+
+    private final DataSource dataSource;
+    private final ImageStorage imageStorage;
+    private final ImageMetadataService imageMetadataService;
+    private final long seed;
+    private final double skew;
+    // Per city, its neighbourhoods in order of popularity
+    private final Locality[][] localities;
+    private final double[][] localityCumulative;
+
+    // How many rows to add of each kind; imageFiles is the number of distinct JPEGs behind the images
+    record Volumes(int users, int pgs, long reviews, long images, int imageFiles) {
+    }
+
+    // Ids of the generated rows, for callers that send requests against them
+    record Catalog(long firstUserId, int users, long firstPgId, int pgs, List<String> imageKeys) {
+    }
+
+    CatalogGenerator(DataSource dataSource, ImageStorage imageStorage, ImageMetadataService imageMetadataService,
+                     long seed, double skew) {
+        this.dataSource = dataSource;
+        this.imageStorage = imageStorage;
+        this.imageMetadataService = imageMetadataService;
+        this.seed = seed;
+        this.skew = skew;
+        this.localities = new Locality[CITIES.length][];
+        this.localityCumulative = new double[CITIES.length][];
+        for (int c = 0; c < CITIES.length; c++) {
+            localities[c] = localities(c);
+            localityCumulative[c] = zipfCumulative(localities[c].length, 1.0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> springArgs = new ArrayList<>(List.of("--spring.main.banner-mode=off",
+                "--logging.level.root=WARN", "--spring.jpa.show-sql=false", "--spring.sql.init.mode=never"));
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            } else if (arg.indexOf('=') > 0) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Expected key=value or --spring.property=value, got " + arg);
+            }
+        }
+        int pgs = Integer.parseInt(options.getOrDefault("pgs", "100000"));
+        Volumes volumes = new Volumes(
+                Integer.parseInt(options.getOrDefault("users", String.valueOf(pgs * 2))),
+                pgs,
+                Long.parseLong(options.getOrDefault("reviews", String.valueOf(pgs * 20L))),
+                Long.parseLong(options.getOrDefault("images", String.valueOf(pgs * 5L))),
+                Integer.parseInt(options.getOrDefault("image-files", "200")));
+
+        // Devtools would restart the application in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PgFinderApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(springArgs.toArray(new String[0]))) {
+            CatalogGenerator generator = new CatalogGenerator(context.getBean(DataSource.class),
+                    context.getBean(ImageStorage.class), context.getBean(ImageMetadataService.class),
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    Double.parseDouble(options.getOrDefault("skew", "1.1")));
+            String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+            Path scratchDir = Files.createTempDirectory("pgfinder-catalog-");
+            Catalog catalog = generator.generate(volumes, passwordHash, scratchDir);
+            System.out.printf("Users %s to %s have password %s%n", emailOf(catalog.firstUserId()),
+                    emailOf(catalog.firstUserId() + catalog.users() - 1), PASSWORD);
+        }
+        System.exit(0);
+    }
+
+    static String emailOf(long userId) {
+        return "synthetic-" + userId + "@example.com";
+    }
+
+    Catalog generate(Volumes volumes, String passwordHash, Path scratchDir) throws SQLException, IOException {
+        if (volumes.users() < OWNER_EVERY || volumes.pgs() < 1) {
+            throw new IllegalArgumentException("Need at least " + OWNER_EVERY + " users and one listing");
+        }
+        long started = System.nanoTime();
+        List<ImageFile> files = writeImageFiles(Math.max(1, volumes.imageFiles()), scratchDir);
+        long userBase;
+        long pgBase;
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            userBase = maxId(connection, "users");
+            pgBase = maxId(connection, "pgs");
+            long imageBase = maxId(connection, "pg_images");
+            long reviewBase = maxId(connection, "reviews");
+
+            // Only the per-listing counts need the whole catalog at once; every other value is
+            // re-derived from the seed and the row's index when it is written
+            int[] reviewCounts = distribute(volumes.reviews(), volumes.pgs(), this::reviewWeight, 0);
+            int[] imageCounts = distribute(volumes.images(), volumes.pgs(), i -> 1 + rowRandom(3, i).nextDouble() * 2,
+                    volumes.images() >= volumes.pgs() ? 1 : 0);
+
+            writeUsers(connection, postgres, userBase, volumes.users(), passwordHash);
+            writePgs(connection, postgres, pgBase, userBase, volumes.users(), imageBase, reviewCounts, imageCounts, files);
+            writeImages(connection, postgres, imageBase, pgBase, imageCounts, files);
+            writeReviews(connection, postgres, reviewBase, pgBase, userBase, volumes.users(), reviewCounts);
+
+            for (String table : List.of("users", "pgs", "pg_images", "reviews")) {
+                restartIdentity(connection, postgres, table);
+            }
+        }
+        System.out.printf("Generated %,d users, %,d listings, %,d images and %,d reviews in %.0f s%n",
+                volumes.users(), volumes.pgs(), volumes.images(), volumes.reviews(), (System.nanoTime() - started) / 1e9);
+
+        List<String> imageKeys = new ArrayList<>(files.size());
+        files.forEach(file -> imageKeys.add(file.key()));
+        return new Catalog(userBase + 1, volumes.users(), pgBase + 1, volumes.pgs(), imageKeys);
+    }
+
+    private void writeUsers(Connection connection, boolean postgres, long userBase, int users, String passwordHash)
+            throws SQLException {
+        try (TableWriter writer = writer(connection, postgres, "users", USER_COLUMNS)) {
+            for (int i = 0; i < users; i++) {
+                SplittableRandom random = rowRandom(1, i);
+                long id = userBase + 1 + i;
+                LocalDateTime createdAt = NOW.minusMinutes(random.nextInt(HISTORY_MINUTES));
+                writer.row(id, "Synthetic User " + id, emailOf(id), passwordHash, phone(random),
+                        i % OWNER_EVERY == 0 ? "OWNER" : "USER", true, true, createdAt, createdAt);
+            }
+        }
+    }
+
+    private void writePgs(Connection connection, boolean postgres, long pgBase, long userBase, int users,
+                          long imageBase, int[] reviewCounts, int[] imageCounts, List<ImageFile> files) throws SQLException {
+        double[] cityCumulative = zipfCumulative(CITIES.length, skew);
+        int owners = (users + OWNER_EVERY - 1) / OWNER_EVERY;
+        long nextImageId = imageBase + 1;
+
+        try (TableWriter writer = writer(connection, postgres, "pgs", PG_COLUMNS)) {
+            for (int i = 0; i < reviewCounts.length; i++) {
+                SplittableRandom random = rowRandom(2, i);
+                long id = pgBase + 1 + i;
+                int cityIndex = pick(cityCumulative, random.nextDouble());
+                Object[] city = CITIES[cityIndex];
+                Locality locality = locality(cityIndex, random);
+
+                int minRent = (Integer) city[2];
+                int maxRent = (Integer) city[3];
+                // Log-normal around a median in the lower third of the range, shifted by the locality
+                double median = minRent * Math.pow((double) maxRent / minRent, 0.35) * locality.premium();
+                int rent = (int) Math.max(minRent, Math.min(maxRent, median * Math.exp(random.nextGaussian() * 0.3)));
+                rent = rent / 500 * 500;
+                double rentPosition = (double) (rent - minRent) / (maxRent - minRent);
+
+                int type = random.nextInt(3);
+                int totalRooms = 4 + (int) Math.min(96, -Math.log(1 - random.nextDouble()) * 12);
+                // Owners are picked with a skew, so a few operators run many listings
+                long ownerId = userBase + 1 + (long) (Math.pow(random.nextDouble(), 2.5) * owners) * OWNER_EVERY;
+                LocalDateTime createdAt = NOW.minusMinutes(ageMinutes(i));
+                String name = NAMES[random.nextInt(NAMES.length)] + " PG " + locality.name();
+
+                ImageFile primary = imageCounts[i] > 0 ? files.get(fileIndex(nextImageId, files.size())) : null;
+
+                writer.row(id, name,
+                        "Furnished rooms in " + locality.name() + ", " + city[0] + " with power backup and RO water",
+                        (1 + random.nextInt(400)) + ", " + locality.name() + " Main Road",
+                        city[0], city[1], String.valueOf(110_000 + random.nextInt(750_000)),
+                        coordinate(locality.latitude(), random), coordinate(locality.longitude(), random),
+                        BigDecimal.valueOf(rent), BigDecimal.valueOf(rent * (1L + random.nextInt(3))),
+                        PG_TYPES[type], GENDER_PREFERENCES[type], totalRooms,
+                        // About a fifth of listings are full
+                        random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(totalRooms),
+                        1 + random.nextInt(3),
+                        random.nextDouble() < 0.6 + 0.35 * rentPosition,
+                        random.nextDouble() < 0.1 + 0.7 * rentPosition,
+                        random.nextDouble() < 0.2 + 0.4 * rentPosition,
+                        random.nextBoolean(), random.nextBoolean(), random.nextDouble() < 0.6,
+                        random.nextDouble() < 0.3 + 0.5 * rentPosition,
+                        random.nextInt(20) == 0, random.nextInt(10) == 0, random.nextInt(4) != 0, random.nextInt(15) == 0,
+                        "Caretaker " + id, phone(random), "pg" + id + "@example.com",
+                        random.nextInt(50) != 0, random.nextInt(3) != 0,
+                        averageRating(i, reviewCounts[i]), reviewCounts[i], 0, ownerId,
+                        primary != null ? nextImageId : null,
+                        primary != null ? primary.url() : null,
+                        primary != null ? primary.width() : null,
+                        primary != null ? primary.height() : null,
+                        primary != null ? primary.dominantColor() : null,
+                        primary != null ? primary.blurHash() : null,
+                        createdAt, min(createdAt.plusMinutes(random.nextInt(60 * 24 * 30)), NOW));
+                nextImageId += imageCounts[i];
+            }
+        }
+    }
+
+    private void writeImages(Connection connection, boolean postgres, long imageBase, long pgBase, int[] imageCounts,
+                             List<ImageFile> files) throws SQLException {
+        long id = imageBase;
+        try (TableWriter writer = writer(connection, postgres, "pg_images", IMAGE_COLUMNS)) {
+            for (int i = 0; i < imageCounts.length; i++) {
+                LocalDateTime createdAt = NOW.minusMinutes(ageMinutes(i));
+                for (int n = 0; n < imageCounts[i]; n++) {
+                    id++;
+                    ImageFile file = files.get(fileIndex(id, files.size()));
+                    writer.row(id, file.url(), CAPTIONS[(int) (id % CAPTIONS.length)], file.contentHash(), file.key(),
+                            file.width(), file.height(), file.byteSize(), file.dominantColor(), file.blurHash(),
+                            n == 0, createdAt.plusMinutes(n), pgBase + 1 + i);
+                }
+            }
+        }
+    }
+
+    private void writeReviews(Connection connection, boolean postgres, long reviewBase, long pgBase, long userBase,
+                              int users, int[] reviewCounts) throws SQLException {
+        long id = reviewBase;
+        try (TableWriter writer = writer(connection, postgres, "reviews", REVIEW_COLUMNS)) {
+            for (int i = 0; i < reviewCounts.length; i++) {
+                SplittableRandom random = reviewRandom(i);
+                double mean = listingQuality(random);
+                long age = ageMinutes(i);
+                for (int n = 0; n < reviewCounts[i]; n++) {
+                    // A small share of users write most of the reviews
+                    long userId = userBase + 1 + (long) (Math.pow(random.nextDouble(), 3) * users);
+                    writer.row(++id, reviewRating(mean, random), REVIEW_COMMENTS[random.nextInt(REVIEW_COMMENTS.length)],
+                            NOW.minusMinutes((long) (random.nextDouble() * age)), pgBase + 1 + i, userId);
+                }
+            }
+        }
+    }
+
+    // Replays the review ratings writeReviews will produce for this listing, so its rating is their average
+    private BigDecimal averageRating(int pgIndex, int count) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        SplittableRandom random = reviewRandom(pgIndex);
+        double mean = listingQuality(random);
+        long sum = 0;
+        for (int n = 0; n < count; n++) {
+            random.nextDouble();
+            sum += reviewRating(mean, random);
+            random.nextInt(REVIEW_COMMENTS.length);
+            random.nextDouble();
+        }
+        return BigDecimal.valueOf(sum).divide(BigDecimal.valueOf(count), 1, RoundingMode.HALF_UP);
+    }
+
+    private static double listingQuality(SplittableRandom random) {
+        return 3.9 + random.nextGaussian() * 0.5;
+    }
+
+    private static int reviewRating(double mean, SplittableRandom random) {
+        return (int) Math.max(1, Math.min(5, Math.round(mean + random.nextGaussian() * 0.9)));
+    }
+
+    // Pareto-distributed popularity, weighted towards older listings, which had longer to collect reviews
+    private double reviewWeight(int pgIndex) {
+        double pareto = Math.pow(1 - rowRandom(4, pgIndex).nextDouble(), -1 / 1.3);
+        return Math.min(pareto, 300) * (0.2 + (double) ageMinutes(pgIndex) / HISTORY_MINUTES);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private long ageMinutes(int pgIndex) {
+        return 60 + rowRandom(5, pgIndex).nextInt(HISTORY_MINUTES);
+    }
+
+    // Four to ten neighbourhoods per city within ~7 km of its center, fixed by the seed
+    private Locality[] localities(int cityIndex) {
+        SplittableRandom cityRandom = rowRandom(6, cityIndex);
+        Locality[] result = new Locality[4 + cityRandom.nextInt(7)];
+        int first = cityRandom.nextInt(LOCALITIES.length);
+        for (int n = 0; n < result.length; n++) {
+            result[n] = new Locality(LOCALITIES[(first + n) % LOCALITIES.length],
+                    (Double) CITIES[cityIndex][4] + cityRandom.nextGaussian() * 0.06,
+                    (Double) CITIES[cityIndex][5] + cityRandom.nextGaussian() * 0.06,
+                    Math.exp(cityRandom.nextGaussian() * 0.2));
+        }
+        return result;
+    }
+
+    // Listings pick neighbourhoods with a skew too
+    private Locality locality(int cityIndex, SplittableRandom random) {
+        return localities[cityIndex][pick(localityCumulative[cityIndex], random.nextDouble())];
+    }
+
+    // Counts summing to total, proportional to weight, with at least `minimum` each
+    private static int[] distribute(long total, int n, IntToDoubleFunction weight, int minimum) {
+        int[] counts = new int[n];
+        long remaining = total - (long) minimum * n;
+        if (remaining < 0) {
+            // Fewer rows than listings: one each for the first ones
+            for (int i = 0; i < total; i++) {
+                counts[i] = 1;
+            }
+            return counts;
+        }
+        double[] weights = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = weight.applyAsDouble(i);
+            sum += weights[i];
+        }
+        long assigned = 0;
+        for (int i = 0; i < n; i++) {
+            counts[i] = minimum + (int) (remaining * weights[i] / sum);
+            assigned += counts[i] - minimum;
+        }
+        // Rounding leftovers go to the heaviest listings first
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(weights[b], weights[a]));
+        for (int k = 0; assigned < remaining; k = (k + 1) % n, assigned++) {
+            counts[order[k]]++;
+        }
+        return counts;
+    }
+
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, double u) {
+        int index = Arrays.binarySearch(cumulative, u);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    // Roughly 1 km around the locality center
+    private static BigDecimal coordinate(double center, SplittableRandom random) {
+        return BigDecimal.valueOf(center + random.nextGaussian() * 0.01).setScale(8, RoundingMode.HALF_UP);
+    }
+
+    private static String phone(SplittableRandom random) {
+        return "9" + (100_000_000 + random.nextInt(900_000_000));
+    }
+
+    private static int fileIndex(long imageId, int files) {
+        return (int) Math.floorMod(mix(imageId), (long) files);
+    }
+
+    private SplittableRandom rowRandom(int stream, long index) {
+        return new SplittableRandom(mix(seed * 0x9E3779B97F4A7C15L + stream * 0xBF58476D1CE4E5B9L + index));
+    }
+
+    private SplittableRandom reviewRandom(int pgIndex) {
+        return rowRandom(7, pgIndex);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Distinct JPEGs stored through the application's ImageStorage, so image requests hit real files
+    private List<ImageFile> writeImageFiles(int count, Path scratchDir) throws IOException {
+        SplittableRandom random = rowRandom(8, 0);
+        List<ImageFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xffffff)),
+                    1200, 900, new Color(random.nextInt(0xffffff))));
+            graphics.fillRect(0, 0, 1200, 900);
+            for (int s = 0; s < 40; s++) {
+                graphics.setColor(new Color(random.nextInt(0xffffff)));
+                graphics.fillRect(random.nextInt(1200), random.nextInt(900), 20 + random.nextInt(200), 20 + random.nextInt(200));
+            }
+            graphics.dispose();
+
+            Path file = Files.createTempFile(scratchDir, ".catalog-", ".jpg");
+            ImageIO.write(image, "jpg", file.toFile());
+            long byteSize = Files.size(file);
+            ImageMetadata metadata;
+            try (InputStream input = Files.newInputStream(file)) {
+                metadata = imageMetadataService.extract(input, byteSize);
+            }
+            String contentHash = sha256Hex(file);
+            String key = imageStorage.keyFor("pg-images", contentHash + ".jpg");
+            if (!imageStorage.storeIfAbsent(key, file, "image/jpeg")) {
+                Files.deleteIfExists(file);
+            }
+            files.add(new ImageFile(key, imageStorage.publicUrl(key), contentHash, metadata.getWidth(),
+                    metadata.getHeight(), byteSize, metadata.getDominantColor(), metadata.getBlurHash()));
+        }
+        return files;
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    // Rows were inserted with explicit ids, so the identity columns must continue after them
+    private static void restartIdentity(Connection connection, boolean postgres, String table) throws SQLException {
+        long next = maxId(connection, table) + 1;
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " + next + ", false)");
+                statement.execute("ANALYZE " + table);
+            } else {
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+            }
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private static String sha256Hex(Path file) throws IOException {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TableWriter writer(Connection connection, boolean postgres, String table, String[] columns)
+            throws SQLException {
+        return postgres ? new CopyWriter(connection, table, columns) : new BatchWriter(connection, table, columns);
+    }
+
+    private record Locality(String name, double latitude, double longitude, double premium) {
+    }
+
+    private record ImageFile(String key, String url, String contentHash, Integer width, Integer height, long byteSize,
+                             String dominantColor, String blurHash) {
+    }
+
+    private abstract static class TableWriter implements AutoCloseable {
+        private final String table;
+        private final long started = System.nanoTime();
+        private long rows;
+
+        TableWriter(String table) {
+            this.table = table;
+        }
+
+        void row(Object... values) throws SQLException {
+            write(values);
+            if (++rows % PROGRESS_EVERY == 0) {
+                progress();
+            }
+        }
+
+        abstract void write(Object[] values) throws SQLException;
+
+        abstract void finish() throws SQLException;
+
+        @Override
+        public void close() throws SQLException {
+            finish();
+            if (rows % PROGRESS_EVERY != 0) {
+                progress();
+            }
+        }
+
+        private void progress() {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("  %-9s %,13d rows  %,10.0f rows/s%n", table, rows, rows / Math.max(seconds, 1e-3));
+        }
+    }
+
+    // PostgreSQL: one COPY ... FROM STDIN per table, fed CSV in 1 MB chunks
+    private static final class CopyWriter extends TableWriter {
+        private final Connection connection;
+        private final CopyIn copy;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 4096);
+
+        CopyWriter(Connection connection, String table, String[] columns) throws SQLException {
+            super(table);
+            this.connection = connection;
+            connection.setAutoCommit(false);
+            this.copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)");
+        }
+
+        @Override
+        void write(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                Object value = values[i];
+                if (value instanceof String text) {
+                    buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else if (value instanceof BigDecimal decimal) {
+                    buffer.append(decimal.toPlainString());
+                } else if (value != null) {
+                    buffer.append(value);
+                }
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_CHARS) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        void finish() throws SQLException {
+            flush();
+            copy.endCopy();
+            connection.commit();
+        }
+    }
+
+    // Anything else: multi-row batches of a prepared INSERT, committed every BATCH_SIZE rows
+    private static final class BatchWriter extends TableWriter {
+        private final Connection connection;
+        private final PreparedStatement insert;
+        private int pending;
+
+        BatchWriter(Connection connection, String table, String[] columns) throws SQLException {
+            super(table);
+            this.connection = connection;
+            connection.setAutoCommit(false);
+            this.insert = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns)
+                    + ") VALUES (" + "?, ".repeat(columns.length - 1) + "?)");
+        }
+
+        @Override
+        void write(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                insert.setObject(i + 1, values[i]);
+            }
+            insert.addBatch();
+            if (++pending == BATCH_SIZE) {
+                insert.executeBatch();
+                connection.commit();
+                pending = 0;
+            }
+        }
+
+        @Override
+        void finish() throws SQLException {
+            if (pending > 0) {
+                insert.executeBatch();
+                connection.commit();
+            }
+            insert.close();
+        }
+    }
+}
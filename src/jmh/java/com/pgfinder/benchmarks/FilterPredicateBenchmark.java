@@ -0,0 +1,118 @@
+package com.pgfinder.benchmarks;
+
+import com.pgfinder.model.PG;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The WHERE clause of PGRepository.searchWithFilters evaluated in Java over a 10k-listing catalog, with
+// the parameter parsing PGController.filterPGs does first. The database runs the same predicate per
+// candidate row, so this is a CPU baseline per row, not a query benchmark. asQueried lowers both sides
+// of the city comparison on every row, as the JPQL does; normalizedCity lowers the parameter once and
+// compares against a stored lower-case value, as a functional index or normalized column would.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterPredicateBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    // "city" filters on city alone; "all" sets every filter filterPGs accepts
+    @Param({"city", "all"})
+    private String filters;
+
+    private List<PG> catalog;
+    private String[] lowerCaseCities;
+    private String city;
+    private String minRent;
+    private String maxRent;
+    private String pgType;
+    private String genderPreference;
+    private boolean amenitiesRequired;
+
+    @Setup
+    public void setUp() {
+        catalog = BenchmarkCatalog.listings(CATALOG_SIZE, 7);
+        lowerCaseCities = new String[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            lowerCaseCities[i] = catalog.get(i).getCity().toLowerCase();
+        }
+        city = "pune";
+        boolean all = "all".equals(filters);
+        minRent = all ? "6000" : null;
+        maxRent = all ? "15000" : null;
+        pgType = all ? "coed" : null;
+        genderPreference = all ? "mixed" : null;
+        amenitiesRequired = all;
+    }
+
+    @Benchmark
+    public int asQueried() {
+        Criteria criteria = parse();
+        int matches = 0;
+        for (PG pg : catalog) {
+            if ((criteria.city == null || pg.getCity().toLowerCase().equals(criteria.city.toLowerCase()))
+                    && criteria.matchesRest(pg)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int normalizedCity() {
+        Criteria criteria = parse();
+        String wanted = criteria.city != null ? criteria.city.toLowerCase() : null;
+        int matches = 0;
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            PG pg = catalog.get(i);
+            if ((wanted == null || lowerCaseCities[i].equals(wanted)) && criteria.matchesRest(pg)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // As PGController.filterPGs turns request parameters into repository arguments
+    private Criteria parse() {
+        return new Criteria(city,
+                minRent != null ? new BigDecimal(minRent) : null,
+                maxRent != null ? new BigDecimal(maxRent) : null,
+                pgType != null ? PG.PGType.valueOf(pgType.toUpperCase()) : null,
+                genderPreference != null ? PG.GenderPreference.valueOf(genderPreference.toUpperCase()) : null,
+                amenitiesRequired, amenitiesRequired, amenitiesRequired);
+    }
+
+    private record Criteria(String city, BigDecimal minRent, BigDecimal maxRent, PG.PGType pgType,
+                            PG.GenderPreference genderPreference, boolean wifiRequired, boolean acRequired,
+                            boolean parkingRequired) {
+
+        // Everything after the city comparison, in the query's order
+        boolean matchesRest(PG pg) {
+            return (minRent == null || pg.getRent().compareTo(minRent) >= 0)
+                    && (maxRent == null || pg.getRent().compareTo(maxRent) <= 0)
+                    && (pgType == null || pg.getPgType() == pgType)
+                    && (genderPreference == null || pg.getGenderPreference() == genderPreference)
+                    && (!wifiRequired || Boolean.TRUE.equals(pg.getWifiAvailable()))
+                    && (!acRequired || Boolean.TRUE.equals(pg.getAcAvailable()))
+                    && (!parkingRequired || Boolean.TRUE.equals(pg.getParkingAvailable()))
+                    && pg.getAvailableRooms() > 0
+                    && Boolean.TRUE.equals(pg.getIsActive());
+        }
+    }
+}
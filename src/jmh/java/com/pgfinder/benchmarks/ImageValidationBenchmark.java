@@ -0,0 +1,127 @@
+package com.pgfinder.benchmarks;
+
+import com.pgfinder.service.ImageUploadService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+// ImageUploadService.validateImageFile, which runs before every upload is read. Rejections are measured
+// too, since they build their message and throw IllegalArgumentException.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageValidationBenchmark {
+
+    private ImageUploadService imageUploadService;
+    private MultipartFile jpeg;
+    private MultipartFile pdf;
+    private MultipartFile oversized;
+
+    @Setup
+    public void setUp() {
+        imageUploadService = new ImageUploadService();
+        Field maxFileSize = ReflectionUtils.findField(ImageUploadService.class, "maxFileSize");
+        ReflectionUtils.makeAccessible(maxFileSize);
+        ReflectionUtils.setField(maxFileSize, imageUploadService, DataSize.ofMegabytes(10));
+
+        jpeg = new UploadedFile("IMG_20240114_101530.JPG", "image/jpeg", 2_400_000);
+        pdf = new UploadedFile("rent-agreement.pdf", "application/pdf", 180_000);
+        oversized = new UploadedFile("panorama.png", "image/png", 24_000_000);
+    }
+
+    @Benchmark
+    public MultipartFile accepted() {
+        imageUploadService.validateImageFile(jpeg);
+        return jpeg;
+    }
+
+    @Benchmark
+    public String rejectedFormat() {
+        return rejectionOf(pdf);
+    }
+
+    @Benchmark
+    public String rejectedSize() {
+        return rejectionOf(oversized);
+    }
+
+    private String rejectionOf(MultipartFile file) {
+        try {
+            imageUploadService.validateImageFile(file);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Only the metadata validateImageFile looks at; the content is never read
+    private static final class UploadedFile implements MultipartFile {
+        private final String filename;
+        private final String contentType;
+        private final long size;
+
+        private UploadedFile(String filename, String contentType, long size) {
+            this.filename = filename;
+            this.contentType = contentType;
+            this.size = size;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return filename;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.pgfinder.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Compares two JMH JSON result files, e.g. the target/jmh-result.json of two releases:
+//
+//   mvn -Pbenchmarks compile exec:exec -Dbenchmark.main=com.pgfinder.benchmarks.JmhResultComparison \
+//       -Dbenchmark.args="baseline.json target/jmh-result.json 10"
+//
+// Prints each benchmark's score in both runs and the change. With a threshold (percent), exits with
+// status 1 when any benchmark got slower by more than that. Only average/sample time modes are compared,
+// where a higher score is worse.
+public class JmhResultComparison {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhResultComparison <baseline.json> <current.json> [max-regression-percent]");
+            System.exit(2);
+        }
+        Map<String, Double> baseline = read(new File(args[0]));
+        Map<String, Double> current = read(new File(args[1]));
+        Double threshold = args.length > 2 ? Double.valueOf(args[2]) : null;
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %12s %12.3f   new%n", entry.getKey(), "-", entry.getValue());
+                continue;
+            }
+            double change = (entry.getValue() - before) / before * 100;
+            boolean regressed = threshold != null && change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %12.3f %12.3f %+7.1f%%%s%n", entry.getKey(), before, entry.getValue(), change,
+                    regressed ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) slower by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    // Benchmark name plus its @Param values -> score
+    private static Map<String, Double> read(File file) throws Exception {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            String mode = result.path("mode").asText();
+            if (!"avgt".equals(mode) && !"sample".equals(mode)) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            result.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            key.append(" (").append(result.path("primaryMetric").path("scoreUnit").asText()).append(')');
+            scores.put(key.toString(), result.path("primaryMetric").path("score").asDouble());
+        }
+        return scores;
+    }
+}
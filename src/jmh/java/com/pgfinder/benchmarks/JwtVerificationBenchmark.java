@@ -0,0 +1,92 @@
+package com.pgfinder.benchmarks;
+
+import com.pgfinder.util.JwtClaims;
+import com.pgfinder.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Cost of issuing and verifying access tokens.
+// legacyValidateToken reproduces the old JwtUtil.validateToken: the key is rebuilt and the token is
+// parsed twice (extractUsername, then isTokenExpired). parseOnce is the current path, and
+// validateAccessToken is what JwtAuthenticationFilter calls on a cache miss. generateAccessToken is
+// the signing half of every login and refresh.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "mySecretKey123456789012345678901234567890";
+    private static final String EMAIL = "owner@example.com";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        setField("secret", SECRET);
+        setField("expiration", 86_400_000L);
+        setField("refreshExpiration", 604_800_000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken(EMAIL, "OWNER", 42L);
+    }
+
+    @Benchmark
+    public boolean legacyValidateToken() {
+        String username = legacyParse(token).getSubject();
+        Date expiration = legacyParse(token).getExpiration();
+        return username.equals(EMAIL) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean parseOnce() {
+        JwtClaims claims = jwtUtil.parse(token);
+        return claims.getSubject().equals(EMAIL) && !claims.isExpired();
+    }
+
+    @Benchmark
+    public JwtClaims validateAccessToken() {
+        return jwtUtil.validateAccessToken(token);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtUtil.generateToken(EMAIL, "OWNER", 42L);
+    }
+
+    private static Claims legacyParse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private void setField(String name, Object value) {
+        Field field = ReflectionUtils.findField(JwtUtil.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, jwtUtil, value);
+    }
+}
@@ -0,0 +1,116 @@
+package com.pgfinder.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pgfinder.controller.PGController;
+import com.pgfinder.model.PG;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Building and serializing one page of GET /pgs the way PGController does: a HashMap with the PG
+// entities and createPaginationInfo's map. entityResponse is the current payload; listingResponse
+// serializes the same page as a lean card DTO with only the fields a listing grid shows, to see what
+// a dedicated listing projection would save. Payload sizes are printed once per trial.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListingResponseBenchmark {
+
+    private static final MethodHandle CREATE_PAGINATION_INFO;
+
+    static {
+        try {
+            CREATE_PAGINATION_INFO = MethodHandles.privateLookupIn(PGController.class, MethodHandles.lookup())
+                    .findVirtual(PGController.class, "createPaginationInfo", MethodType.methodType(Map.class, Page.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private PGController controller;
+    private Page<PG> page;
+
+    @Setup
+    public void setUp() throws Throwable {
+        // Same settings Spring Boot applies to the application's ObjectMapper
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        controller = new PGController();
+        page = new PageImpl<>(BenchmarkCatalog.listings(pageSize, 42), PageRequest.of(3, pageSize), 2_400);
+        System.out.println("\npageSize=" + pageSize + " entityResponse=" + entityResponse().length
+                + " bytes, listingResponse=" + listingResponse().length + " bytes");
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> paginationInfo() throws Throwable {
+        return (Map<String, Object>) CREATE_PAGINATION_INFO.invokeExact(controller, page);
+    }
+
+    @Benchmark
+    public byte[] entityResponse() throws Throwable {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("pgs", page.getContent());
+        response.put("pagination", paginationInfo());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] listingResponse() throws Throwable {
+        List<ListingCard> cards = new ArrayList<>(page.getNumberOfElements());
+        for (PG pg : page.getContent()) {
+            cards.add(ListingCard.of(pg));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("pgs", cards);
+        response.put("pagination", paginationInfo());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    record ListingCard(Long id, String name, String city, BigDecimal rent, PG.PGType pgType,
+                       PG.GenderPreference genderPreference, Integer availableRooms, BigDecimal rating,
+                       Integer totalReviews, Integer favoriteCount, Boolean isVerified, String primaryImageUrl,
+                       Integer primaryImageWidth, Integer primaryImageHeight, String primaryImageDominantColor,
+                       String primaryImageBlurHash) {
+
+        static ListingCard of(PG pg) {
+            return new ListingCard(pg.getId(), pg.getName(), pg.getCity(), pg.getRent(), pg.getPgType(),
+                    pg.getGenderPreference(), pg.getAvailableRooms(), pg.getRating(), pg.getTotalReviews(),
+                    pg.getFavoriteCount(), pg.getIsVerified(), pg.getPrimaryImageUrl(), pg.getPrimaryImageWidth(),
+                    pg.getPrimaryImageHeight(), pg.getPrimaryImageDominantColor(), pg.getPrimaryImageBlurHash());
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.pgfinder.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pgfinder.PgFinderApplication;
+import com.pgfinder.service.ImageMetadataService;
+import com.pgfinder.storage.ImageStorage;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// End-to-end load test: boots the application in this JVM against an in-memory H2 database in
+// PostgreSQL mode (or any database given with jdbc-url=), seeds a catalog with CatalogGenerator, then sends
+// an open-loop mix of browse, filter, search, detail, login and image requests at a fixed rate.
+// Latency is measured from each request's scheduled start, so a stalled server shows up as latency
+// instead of silently lowering the request rate.
+//
+//   mvn -Pbenchmarks compile exec:exec -Dbenchmark.main=com.pgfinder.benchmarks.LoadHarness \
+//       -Dbenchmark.args="rate=200 duration=PT60S baseline=load-baseline.json"
+//
+// Options (key=value): rate (requests/s, 200), duration (PT60S), warmup (PT20S), pgs (5000),
+// users (2000), reviews (pgs x 15), images (pgs x 4), image-files (40), seed (42),
+// mix (browse:35,filter:20,search:15,detail:20,image:8,login:2),
+// output (target/load-result.json), baseline (a previous output file), threshold (percent, 25),
+// gate (p95 or p99), jdbc-url, jdbc-username, jdbc-password.
+//
+// Prints requests, throughput and p50/p95/p99 per endpoint and writes them to the output file. With a
+// baseline, exits with status 1 when an endpoint's gate percentile got slower by more than threshold
+// percent, or its error rate went over 1%, which fails the Maven build. Record the baseline on the same
+// machine and at a rate it sustains; past saturation every percentile is queueing time.
+public class LoadHarness {
+
+    // Differences below this are noise at any percentage
+    private static final double MIN_REGRESSION_MS = 2.0;
+    private static final double MAX_ERROR_RATIO = 0.01;
+    // A percentile of fewer requests than this is not worth failing a build over
+    private static final int MIN_GATED_REQUESTS = 20;
+
+    enum Endpoint {
+        BROWSE, FILTER, SEARCH, DETAIL, IMAGE, LOGIN
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT20S"));
+        int pgCount = Integer.parseInt(options.getOrDefault("pgs", "5000"));
+        int userCount = Integer.parseInt(options.getOrDefault("users", "2000"));
+        CatalogGenerator.Volumes volumes = new CatalogGenerator.Volumes(userCount, pgCount,
+                Long.parseLong(options.getOrDefault("reviews", String.valueOf(pgCount * 15L))),
+                Long.parseLong(options.getOrDefault("images", String.valueOf(pgCount * 4L))),
+                Integer.parseInt(options.getOrDefault("image-files", "40")));
+        Map<Endpoint, Integer> mix = parseMix(options.getOrDefault("mix", "browse:35,filter:20,search:15,detail:20,image:8,login:2"));
+        File output = new File(options.getOrDefault("output", "target/load-result.json"));
+
+        Path uploadDir = Files.createTempDirectory("pgfinder-load-");
+        ConfigurableApplicationContext context = start(options, uploadDir);
+        int exitCode;
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+
+            long seedStarted = System.nanoTime();
+            String passwordHash = context.getBean(PasswordEncoder.class).encode(CatalogGenerator.PASSWORD);
+            CatalogGenerator.Catalog catalog = new CatalogGenerator(context.getBean(DataSource.class),
+                    context.getBean(ImageStorage.class), context.getBean(ImageMetadataService.class),
+                    Long.parseLong(options.getOrDefault("seed", "42")), 1.1)
+                    .generate(volumes, passwordHash, uploadDir);
+            Workload workload = new Workload(baseUrl, mix, ids(context.getBean(DataSource.class)), catalog);
+            System.out.printf("Seeded the catalog in %.1f s%n", (System.nanoTime() - seedStarted) / 1e9);
+
+            Map<Endpoint, Recorder> results = run(workload, rate, warmup, duration);
+            Map<String, Object> report = report(results, rate, duration);
+            output.getParentFile().mkdirs();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+            System.out.println("Results written to " + output);
+
+            exitCode = options.containsKey("baseline")
+                    ? compare(report, new File(options.get("baseline")),
+                            Double.parseDouble(options.getOrDefault("threshold", "25")), options.getOrDefault("gate", "p95"))
+                    : 0;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext start(Map<String, String> options, Path uploadDir) {
+        // Devtools would restart the application in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> properties = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=never",
+                "--spring.jpa.properties.jakarta.persistence.validation.mode=none",
+                "--app.upload.dir=" + uploadDir + "/",
+                "--spring.mail.host=localhost",
+                // Every request comes from one address and a few hundred accounts
+                "--app.rate-limit.login.ip.capacity=10000",
+                "--app.rate-limit.login.ip.refill-period=PT0.001S",
+                "--app.rate-limit.login.email.capacity=1000",
+                "--app.rate-limit.login.email.refill-period=PT0.001S"));
+        if (options.containsKey("jdbc-url")) {
+            properties.add("--spring.datasource.url=" + options.get("jdbc-url"));
+            properties.add("--spring.datasource.username=" + options.getOrDefault("jdbc-username", "postgres"));
+            properties.add("--spring.datasource.password=" + options.getOrDefault("jdbc-password", ""));
+        } else {
+            properties.add("--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            properties.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            properties.add("--spring.datasource.username=sa");
+            properties.add("--spring.datasource.password=");
+            properties.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        }
+        return SpringApplication.run(PgFinderApplication.class, properties.toArray(new String[0]));
+    }
+
+    private static Map<Endpoint, Recorder> run(Workload workload, double rate, Duration warmup, Duration duration) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder());
+        }
+        Random random = new Random(7);
+        long interval = (long) (1e9 / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long maxLagNanos = 0;
+
+        System.out.printf("Sending %.0f requests/s: %d s warmup, %d s measured%n", rate, warmup.toSeconds(), duration.toSeconds());
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long n = 0; ; n++) {
+                long scheduled = start + n * interval;
+                if (scheduled >= end) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (scheduled > now) {
+                    LockSupport.parkNanos(scheduled - now);
+                } else {
+                    maxLagNanos = Math.max(maxLagNanos, now - scheduled);
+                }
+                Endpoint endpoint = workload.pick(random);
+                HttpRequest request = workload.request(endpoint, random);
+                boolean measured = scheduled >= measureFrom;
+                senders.submit(() -> {
+                    boolean ok;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        ok = response.statusCode() < 400;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    if (measured) {
+                        recorders.get(endpoint).record(System.nanoTime() - scheduled, ok);
+                    }
+                    return null;
+                });
+            }
+        }
+        if (maxLagNanos > 100_000_000) {
+            System.err.printf("The load generator fell up to %d ms behind schedule; results understate latency%n",
+                    maxLagNanos / 1_000_000);
+        }
+        return recorders;
+    }
+
+    private static Map<String, Object> report(Map<Endpoint, Recorder> results, double rate, Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%-8s %9s %7s %10s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<Endpoint, Recorder> entry : results.entrySet()) {
+            long[] latencies = entry.getValue().sorted();
+            if (latencies.length == 0 && entry.getValue().errors.get() == 0) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", latencies.length + entry.getValue().errors.get());
+            stats.put("errors", entry.getValue().errors.get());
+            stats.put("throughput", round(latencies.length / seconds));
+            stats.put("p50", round(percentile(latencies, 0.50)));
+            stats.put("p95", round(percentile(latencies, 0.95)));
+            stats.put("p99", round(percentile(latencies, 0.99)));
+            stats.put("max", round(latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0));
+            endpoints.put(entry.getKey().name().toLowerCase(), stats);
+            System.out.printf("%-8s %9d %7d %10.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey().name().toLowerCase(),
+                    stats.get("requests"), stats.get("errors"), stats.get("throughput"), stats.get("p50"),
+                    stats.get("p95"), stats.get("p99"), stats.get("max"));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rate", rate);
+        report.put("durationSeconds", seconds);
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    // Returns the process exit code
+    private static int compare(Map<String, Object> report, File baselineFile, double thresholdPercent, String gate)
+            throws Exception {
+        JsonNode baseline = new ObjectMapper().readTree(baselineFile).path("endpoints");
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> endpoints = (Map<String, Map<String, Object>>) report.get("endpoints");
+        int failures = 0;
+        System.out.printf("Compared with %s (%s, threshold %.0f%%):%n", baselineFile, gate, thresholdPercent);
+        for (Map.Entry<String, Map<String, Object>> entry : endpoints.entrySet()) {
+            Map<String, Object> stats = entry.getValue();
+            double current = ((Number) stats.get(gate)).doubleValue();
+            double errorRatio = ((Number) stats.get("errors")).doubleValue() / ((Number) stats.get("requests")).doubleValue();
+            JsonNode before = baseline.path(entry.getKey());
+            String verdict;
+            if (errorRatio > MAX_ERROR_RATIO) {
+                verdict = String.format("FAIL: %.1f%% errors", errorRatio * 100);
+                failures++;
+            } else if (before.isMissingNode()) {
+                verdict = "new";
+            } else if (((Number) stats.get("requests")).intValue() < MIN_GATED_REQUESTS) {
+                verdict = "too few requests to compare";
+            } else {
+                double previous = before.path(gate).asDouble();
+                double change = previous > 0 ? (current - previous) / previous * 100 : 0;
+                boolean regressed = change > thresholdPercent && current - previous > MIN_REGRESSION_MS;
+                verdict = String.format("%9.1f -> %9.1f ms %+7.1f%%%s", previous, current, change, regressed ? "  FAIL" : "");
+                if (regressed) {
+                    failures++;
+                }
+            }
+            System.out.printf("  %-8s %s%n", entry.getKey(), verdict);
+        }
+        if (failures > 0) {
+            System.err.println(failures + " endpoint(s) regressed");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static List<Long> ids(DataSource dataSource) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id FROM pgs WHERE is_active = true")) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.split(":");
+            weights.put(Endpoint.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    // Requests drawn from the seeded catalog, in the proportions of the mix
+    private static final class Workload {
+        // The popular half of the generated cities, and keywords that match listing names and addresses
+        private static final int CITIES = CatalogGenerator.CITIES.length / 2;
+        private static final String[] KEYWORDS = {"koramangala", "baner", "sunrise", "green valley", "powai", "pune",
+                "madhapur", "comfort", "sector 62", "lotus", "whitefield", "main road"};
+        private static final String[] FILTERS = {"pgType=COED", "genderPreference=FEMALE_ONLY", "wifiRequired=true",
+                "acRequired=true", "minRent=5000&maxRent=12000", "parkingRequired=true&wifiRequired=true"};
+
+        private final String baseUrl;
+        private final Endpoint[] byWeight;
+        private final List<Long> pgIds;
+        private final CatalogGenerator.Catalog catalog;
+
+        private Workload(String baseUrl, Map<Endpoint, Integer> mix, List<Long> pgIds, CatalogGenerator.Catalog catalog) {
+            this.baseUrl = baseUrl;
+            this.pgIds = pgIds;
+            this.catalog = catalog;
+            List<Endpoint> slots = new ArrayList<>();
+            mix.forEach((endpoint, weight) -> slots.addAll(Collections.nCopies(weight, endpoint)));
+            this.byWeight = slots.toArray(new Endpoint[0]);
+        }
+
+        Endpoint pick(Random random) {
+            return byWeight[random.nextInt(byWeight.length)];
+        }
+
+        HttpRequest request(Endpoint endpoint, Random random) {
+            // Most people look at the first pages
+            int page = random.nextInt(10) < 7 ? 0 : random.nextInt(5);
+            String city = (String) CatalogGenerator.CITIES[random.nextInt(CITIES)][0];
+            return switch (endpoint) {
+                case BROWSE -> get("/pgs?page=" + page + "&size=20");
+                case FILTER -> get("/pgs/filter?city=" + encode(city) + "&" + FILTERS[random.nextInt(FILTERS.length)]
+                        + "&page=" + page + "&size=20");
+                case SEARCH -> get("/pgs/search?keyword=" + encode(KEYWORDS[random.nextInt(KEYWORDS.length)])
+                        + "&page=" + page + "&size=20");
+                case DETAIL -> get("/pgs/" + pgIds.get(random.nextInt(pgIds.size())));
+                case IMAGE -> HttpRequest.newBuilder(URI.create(baseUrl + "/images/" + catalog.imageKeys().get(random.nextInt(catalog.imageKeys().size()))))
+                        .header("Accept", "image/avif,image/webp,image/*,*/*;q=0.8")
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+                case LOGIN -> HttpRequest.newBuilder(URI.create(baseUrl + "/users/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + CatalogGenerator.emailOf(catalog.firstUserId() + random.nextInt(catalog.users()))
+                                + "\",\"password\":\"" + CatalogGenerator.PASSWORD + "\"}"))
+                        .build();
+            };
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+        }
+
+        private static String encode(String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Recorder {
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[4096];
+        private int size;
+
+        synchronized void record(long nanos, boolean ok) {
+            if (!ok) {
+                errors.incrementAndGet();
+                return;
+            }
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.pgfinder.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop HTTP load against a running app: `clients` virtual threads each send a request, wait for
+// the response and send the next, for `duration` after `warmup`. Used to compare the server with
+// spring.threads.virtual.enabled=false and =true at the same concurrency:
+//
+//   mvn -Pbenchmarks compile exec:exec -Dbenchmark.main=com.pgfinder.benchmarks.ThreadModeLoadTest \
+//       -Dbenchmark.args="http://localhost:8080/api/pgs?page=0&size=10 2000 PT30S PT10S"
+//
+// Prints one line: clients, requests, throughput, p50/p99/max latency and errors.
+public class ThreadModeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ThreadModeLoadTest <url> [clients=2000] [duration=PT30S] [warmup=PT10S]");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0]);
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Duration duration = args.length > 2 ? Duration.parse(args[2]) : Duration.ofSeconds(30);
+        Duration warmup = args.length > 3 ? Duration.parse(args[3]) : Duration.ofSeconds(10);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<LatencyLog> logs = new ArrayList<>(clients);
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                LatencyLog log = new LatencyLog();
+                logs.add(log);
+                workers.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < measureUntil) {
+                        boolean ok;
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            ok = response.statusCode() < 400;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+                        // Counted by completion time, so slow requests that started during warmup still count
+                        if (end >= measureFrom && end <= measureUntil) {
+                            if (ok) {
+                                log.add(end - now);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long[] latencies = LatencyLog.merge(logs);
+        Arrays.sort(latencies);
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("clients=%d requests=%d throughput=%.1f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms errors=%d%n",
+                clients, latencies.length, latencies.length / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0.0, errors.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Written by one client thread only
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        static long[] merge(List<LatencyLog> logs) {
+            int total = logs.stream().mapToInt(log -> log.size).sum();
+            long[] merged = new long[total];
+            int offset = 0;
+            for (LatencyLog log : logs) {
+                System.arraycopy(log.values, 0, merged, offset, log.size);
+                offset += log.size;
+            }
+            return merged;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pgfinder.config;
 
+import com.pgfinder.service.PGImageService;
 import com.pgfinder.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
@@ -11,11 +12,20 @@ public class ApplicationStartup implements ApplicationRunner {
 
     @Autowired
     private UserService userService;
+    
+    @Autowired
+    private PGImageService pgImageService;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
         // Create hardcoded admin user if it doesn't exist
         userService.createHardcodedAdmin();
+        
+        // Give images stored before content addressing a storage key for reference counting
+        int backfilled = pgImageService.backfillStorageKeys();
+        if (backfilled > 0) {
+            System.out.println("Backfilled storage keys for " + backfilled + " images");
+        }
         System.out.println("=== PG Finder Application Started Successfully ===");
         System.out.println("Default Admin Credentials:");
         System.out.println("Email: admin@pgfinder.com");
@@ -0,0 +1,85 @@
+package com.pgfinder.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+// Constraints and one-off data fixes that Hibernate's ddl-auto=update can't express.
+// Statements are idempotent and only run on PostgreSQL; the in-memory H2 setup doesn't need them.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseSchemaInitializer implements ApplicationRunner {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!isPostgreSQL()) {
+            return;
+        }
+
+        // At most one primary image per PG. Deferred so a primary switch can flip both rows in one UPDATE.
+        jdbcTemplate.execute(
+            "DO $$ BEGIN " +
+            "IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'ex_pg_images_single_primary') THEN " +
+            "  UPDATE pg_images i SET is_primary = false WHERE i.is_primary AND EXISTS (" +
+            "    SELECT 1 FROM pg_images o WHERE o.pg_id = i.pg_id AND o.is_primary AND o.id > i.id); " +
+            "  ALTER TABLE pg_images ADD CONSTRAINT ex_pg_images_single_primary " +
+            "    EXCLUDE USING btree (pg_id WITH =) WHERE (is_primary) DEFERRABLE INITIALLY DEFERRED; " +
+            "END IF; " +
+            "END $$");
+
+        // Point PGs created before the denormalized columns existed at their primary image
+        int backfilled = jdbcTemplate.update(
+            "UPDATE pgs p SET primary_image_id = i.id, primary_image_url = i.image_url, " +
+            "primary_image_width = i.width, primary_image_height = i.height, " +
+            "primary_image_dominant_color = i.dominant_color, primary_image_blur_hash = i.blur_hash " +
+            "FROM pg_images i WHERE i.pg_id = p.id AND i.is_primary AND p.primary_image_id IS NULL");
+        if (backfilled > 0) {
+            System.out.println("Backfilled primary image for " + backfilled + " PGs");
+        }
+
+        // Refresh tokens used to be stored in full on users; carry them over as hashed sessions, then drop them
+        jdbcTemplate.execute(
+            "DO $$ BEGIN " +
+            "IF EXISTS (SELECT 1 FROM information_schema.columns " +
+            "           WHERE table_name = 'users' AND column_name = 'refresh_token') THEN " +
+            "  INSERT INTO refresh_sessions (user_id, token_hash, device_label, created_at, last_used_at, expires_at) " +
+            "  SELECT id, encode(sha256(convert_to(refresh_token, 'UTF8')), 'hex'), 'Migrated session', NOW(), NOW(), refresh_token_expiry " +
+            "  FROM users WHERE refresh_token IS NOT NULL AND refresh_token_expiry > NOW() " +
+            "  ON CONFLICT (token_hash) DO NOTHING; " +
+            "  ALTER TABLE users DROP COLUMN refresh_token, DROP COLUMN refresh_token_expiry; " +
+            "END IF; " +
+            "END $$");
+
+        // Same for verification tokens, which now live hashed in user_tokens
+        jdbcTemplate.execute(
+            "DO $$ BEGIN " +
+            "IF EXISTS (SELECT 1 FROM information_schema.columns " +
+            "           WHERE table_name = 'users' AND column_name = 'verification_token') THEN " +
+            "  INSERT INTO user_tokens (user_id, purpose, token_hash, created_at, expires_at) " +
+            "  SELECT id, 'EMAIL_VERIFICATION', encode(sha256(convert_to(verification_token, 'UTF8')), 'hex'), NOW(), verification_token_expiry " +
+            "  FROM users WHERE verification_token IS NOT NULL AND NOT is_verified AND verification_token_expiry > NOW() " +
+            "  ON CONFLICT (token_hash) DO NOTHING; " +
+            "  ALTER TABLE users DROP COLUMN verification_token, DROP COLUMN verification_token_expiry; " +
+            "END IF; " +
+            "END $$");
+    }
+
+    private boolean isPostgreSQL() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+}
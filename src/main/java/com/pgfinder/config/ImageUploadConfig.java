@@ -0,0 +1,52 @@
+package com.pgfinder.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImageUploadConfig {
+
+    @Value("${app.images.upload.threads:4}")
+    private int uploadThreads;
+
+    @Value("${app.images.upload.queue-capacity:64}")
+    private int uploadQueueCapacity;
+
+    @Value("${app.images.variants.threads:2}")
+    private int variantThreads;
+
+    @Value("${app.images.variants.queue-capacity:100}")
+    private int variantQueueCapacity;
+
+    // Bounded pool for hashing and storing gallery uploads; when it is saturated the
+    // request thread stores the file itself instead of queueing without limit
+    @Bean
+    public ThreadPoolTaskExecutor imageUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadThreads);
+        executor.setMaxPoolSize(uploadThreads);
+        executor.setQueueCapacity(uploadQueueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Encodes WebP/AVIF variants off the request thread; when it is saturated new variants are
+    // rejected and the original is served, so a burst of first requests can't pile up encoders
+    @Bean
+    public ThreadPoolTaskExecutor imageVariantExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(variantThreads);
+        executor.setMaxPoolSize(variantThreads);
+        executor.setQueueCapacity(variantQueueCapacity);
+        executor.setThreadNamePrefix("image-variant-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
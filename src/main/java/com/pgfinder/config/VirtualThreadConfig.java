@@ -0,0 +1,95 @@
+package com.pgfinder.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Active with spring.threads.virtual.enabled=true, which makes Spring Boot run Tomcat requests, @Async
+// tasks and @Scheduled jobs on virtual threads.
+//
+// Work that would pin or starve carrier threads deliberately stays on the bounded platform pools it
+// already has: BCrypt (passwordHashingExecutor), image hashing and WebP/AVIF encoding (imageUploadExecutor,
+// imageVariantExecutor) and SMTP, whose Transport methods are synchronized (emailOutboxExecutor).
+// This class watches for the pinning that remains: a JFR stream reports every jdk.VirtualThreadPinned
+// event longer than pinned-threshold as a metric, and logs the stack of each new pinning site once.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig implements InitializingBean, DisposableBean {
+
+    private static final int MAX_LOGGED_SITES = 100;
+    private static final int LOGGED_FRAMES = 12;
+
+    @Value("${app.threads.virtual.pinned-threshold:PT0.02S}")
+    private Duration pinnedThreshold;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream pinnedEvents;
+    private Timer pinnedTimer;
+    private Counter pinnedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        pinnedTimer = Timer.builder("pgfinder.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier while blocked")
+                .register(meterRegistry);
+        pinnedCounter = Counter.builder("pgfinder.threads.virtual.pinned.events")
+                .description("Virtual thread pinning events over the threshold")
+                .register(meterRegistry);
+
+        pinnedEvents = new RecordingStream();
+        pinnedEvents.enable("jdk.VirtualThreadPinned").withThreshold(pinnedThreshold).withStackTrace();
+        pinnedEvents.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        pinnedEvents.startAsync();
+        System.out.println("Virtual threads enabled; reporting pinning longer than " + pinnedThreshold.toMillis() + " ms");
+    }
+
+    @Override
+    public void destroy() {
+        if (pinnedEvents != null) {
+            pinnedEvents.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        pinnedTimer.record(event.getDuration());
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        // One log line per distinct pinning site, so a hot path doesn't flood the log
+        String site = describe(stackTrace.getFrames().get(0));
+        if (loggedSites.size() < MAX_LOGGED_SITES && loggedSites.add(site)) {
+            StringBuilder message = new StringBuilder("Virtual thread pinned for ")
+                    .append(event.getDuration().toMillis()).append(" ms at:");
+            stackTrace.getFrames().stream()
+                    .limit(LOGGED_FRAMES)
+                    .forEach(frame -> message.append("\n    at ").append(describe(frame)));
+            System.err.println(message);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
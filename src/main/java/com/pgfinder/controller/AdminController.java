@@ -0,0 +1,158 @@
+package com.pgfinder.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgfinder.dto.ImageGcReport;
+import com.pgfinder.dto.UserSummary;
+import com.pgfinder.model.User;
+import com.pgfinder.service.EmailOutboxWorker;
+import com.pgfinder.service.ImageGarbageCollector;
+import com.pgfinder.service.ImageLayoutMigrator;
+import com.pgfinder.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+
+    private static final int MAX_USER_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ImageGarbageCollector imageGarbageCollector;
+    
+    @Autowired
+    private ImageLayoutMigrator imageLayoutMigrator;
+    
+    @Autowired
+    private EmailOutboxWorker emailOutboxWorker;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping("/images/gc")
+    public ResponseEntity<Map<String, Object>> runImageGarbageCollection() {
+        Map<String, Object> response = new HashMap<>();
+        
+        ImageGcReport report = imageGarbageCollector.sweep();
+        
+        response.put("success", true);
+        response.put("report", report);
+        return ResponseEntity.ok(response);
+    }
+    
+    // Starts moving flat pg-images/ files into the sharded layout in the background
+    @PostMapping("/images/migrate-layout")
+    public ResponseEntity<Map<String, Object>> startImageLayoutMigration() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            boolean started = imageLayoutMigrator.start();
+            response.put("success", true);
+            response.put("message", started ? "Image layout migration started" : "Image layout migration is already running");
+            response.put("report", imageLayoutMigrator.getReport());
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    @GetMapping("/images/migrate-layout")
+    public ResponseEntity<Map<String, Object>> getImageLayoutMigration() {
+        Map<String, Object> response = new HashMap<>();
+        
+        response.put("success", true);
+        response.put("report", imageLayoutMigrator.getReport());
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/emails/outbox")
+    public ResponseEntity<Map<String, Object>> getEmailOutbox() {
+        Map<String, Object> response = new HashMap<>();
+        
+        response.put("success", true);
+        response.put("counts", emailOutboxWorker.getStatusCounts());
+        return ResponseEntity.ok(response);
+    }
+    
+    // Active users in id order, one page at a time: pass the returned nextCursor as `after` for the next page
+    @GetMapping("/users")
+    public ResponseEntity<Map<String, Object>> listUsers(@RequestParam(required = false) String type,
+                                                         @RequestParam(defaultValue = "0") long after,
+                                                         @RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            User.UserType userType = parseUserType(type);
+            int pageSize = Math.max(1, Math.min(limit, MAX_USER_PAGE_SIZE));
+            // One extra row tells whether another page exists without a COUNT
+            List<UserSummary> users = userService.findActiveUserPage(userType, after, pageSize + 1);
+            boolean hasMore = users.size() > pageSize;
+            if (hasMore) {
+                users = users.subList(0, pageSize);
+            }
+            
+            response.put("success", true);
+            response.put("users", users);
+            response.put("hasMore", hasMore);
+            response.put("nextCursor", hasMore ? users.get(users.size() - 1).getId() : null);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Invalid user type");
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // Every active user as newline-delimited JSON, written while the rows are read
+    @GetMapping("/users/stream")
+    public void streamUsers(@RequestParam(required = false) String type, HttpServletResponse response) throws IOException {
+        User.UserType userType;
+        try {
+            userType = parseUserType(type);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json");
+            objectMapper.writeValue(response.getOutputStream(), Map.of("success", false, "message", "Invalid user type"));
+            return;
+        }
+        
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        try {
+            userService.forEachActiveUser(userType, user -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(user));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Client went away; the cursor is already closed
+            throw e.getCause();
+        }
+        out.flush();
+    }
+    
+    private static User.UserType parseUserType(String type) {
+        return type == null || type.isBlank() ? null : User.UserType.valueOf(type.toUpperCase(Locale.ROOT));
+    }
+}
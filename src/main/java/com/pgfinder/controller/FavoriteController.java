@@ -0,0 +1,93 @@
+package com.pgfinder.controller;
+
+import com.pgfinder.model.PG;
+import com.pgfinder.security.AuthenticatedUser;
+import com.pgfinder.service.FavoriteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The signed-in user's favorite PGs
+@RestController
+@RequestMapping("/users/favorites")
+@CrossOrigin(origins = "*")
+public class FavoriteController {
+
+    @Autowired
+    private FavoriteService favoriteService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getFavorites(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "10") int size) {
+        Map<String, Object> response = new HashMap<>();
+        
+        Page<PG> pgs = favoriteService.getFavorites(currentUser.getUserId(), PageRequest.of(page, size));
+        
+        Map<String, Object> pagination = new HashMap<>();
+        pagination.put("currentPage", pgs.getNumber());
+        pagination.put("totalPages", pgs.getTotalPages());
+        pagination.put("totalElements", pgs.getTotalElements());
+        pagination.put("size", pgs.getSize());
+        pagination.put("hasNext", pgs.hasNext());
+        pagination.put("hasPrevious", pgs.hasPrevious());
+        
+        response.put("success", true);
+        response.put("pgs", pgs.getContent());
+        response.put("pagination", pagination);
+        return ResponseEntity.ok(response);
+    }
+
+    // For listing pages: GET /users/favorites/lookup?pgIds=1,2,3 returns the subset the user has favorited
+    @GetMapping("/lookup")
+    public ResponseEntity<Map<String, Object>> lookupFavorites(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                               @RequestParam List<Long> pgIds) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("favorited", favoriteService.findFavorited(currentUser.getUserId(), pgIds));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Idempotent: adding a PG twice is not an error
+    @PutMapping("/{pgId}")
+    public ResponseEntity<Map<String, Object>> addFavorite(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                           @PathVariable Long pgId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            boolean added = favoriteService.addFavorite(currentUser.getUserId(), pgId);
+            response.put("success", true);
+            response.put("message", added ? "PG added to favorites" : "PG is already a favorite");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @DeleteMapping("/{pgId}")
+    public ResponseEntity<Map<String, Object>> removeFavorite(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                              @PathVariable Long pgId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        boolean removed = favoriteService.removeFavorite(currentUser.getUserId(), pgId);
+        response.put("success", true);
+        response.put("message", removed ? "PG removed from favorites" : "PG was not a favorite");
+        return ResponseEntity.ok(response);
+    }
+}
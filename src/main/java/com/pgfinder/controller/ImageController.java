@@ -0,0 +1,31 @@
+package com.pgfinder.controller;
+
+import com.pgfinder.service.ImageServingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/images")
+@CrossOrigin(origins = "*")
+public class ImageController {
+
+    private static final String IMAGES_PREFIX = "/images/";
+
+    @Autowired
+    private ImageServingService imageServingService;
+
+    @RequestMapping(value = "/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveImage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Everything after /images/ is the storage path of the file
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String relativePath = path.startsWith(IMAGES_PREFIX) ? path.substring(IMAGES_PREFIX.length()) : "";
+        imageServingService.serve(relativePath, request, response);
+    }
+}
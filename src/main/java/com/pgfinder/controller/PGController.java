@@ -2,21 +2,29 @@ package com.pgfinder.controller;
 
 import com.pgfinder.model.PG;
 import com.pgfinder.model.PGImage;
+import com.pgfinder.model.UploadSession;
 import com.pgfinder.model.User;
 import com.pgfinder.service.PGService;
 import com.pgfinder.service.PGImageService;
+import com.pgfinder.service.ResumableUploadService;
 import com.pgfinder.service.UserService;
+import com.pgfinder.storage.ImageStorage;
+import com.pgfinder.storage.PresignedUpload;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +44,21 @@ public class PGController {
     @Autowired
     private PGImageService pgImageService;
     
+    @Value("${app.images.upload.max-batch-files:20}")
+    private int maxBatchFiles;
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Value("${app.storage.presigned-upload-ttl:PT15M}")
+    private Duration presignedUploadTtl;
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    
     @PostMapping
     public ResponseEntity<Map<String, Object>> createPG(@Valid @RequestBody PG pg) {
         Map<String, Object> response = new HashMap<>();
@@ -381,6 +404,265 @@ public class PGController {
         }
     }
     
+    @PostMapping("/{pgId}/images/batch-upload")
+    public ResponseEntity<?> uploadPGImages(
+            @PathVariable Long pgId,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) List<String> captions,
+            @RequestParam(required = false) Integer primaryIndex) {
+        
+        try {
+            if (files.size() > maxBatchFiles) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "At most " + maxBatchFiles + " images can be uploaded at once"
+                ));
+            }
+            
+            Optional<PG> pgOpt = pgService.findById(pgId);
+            if (pgOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            List<PGImage> uploadedImages = pgImageService.uploadPGImages(pgOpt.get(), files, captions, primaryIndex);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Images uploaded successfully");
+            response.put("images", uploadedImages);
+            response.put("totalImages", uploadedImages.size());
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to upload images: " + e.getMessage()
+            ));
+        }
+    }
+    
+    // Step one of a direct upload: the client hashes the file and gets a URL to PUT it to the object store
+    @PostMapping("/{pgId}/images/upload-url")
+    public ResponseEntity<?> createImageUploadUrl(
+            @PathVariable Long pgId,
+            @RequestParam String filename,
+            @RequestParam String contentType,
+            @RequestParam long size,
+            @RequestParam String sha256) {
+        
+        if (!imageStorage.supportsDirectUpload()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Direct uploads need an object store (app.storage.type=s3)"
+            ));
+        }
+        
+        try {
+            if (pgService.findById(pgId).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            PresignedUpload upload = pgImageService.createDirectUpload(filename, contentType, size, sha256,
+                    presignedUploadTtl);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            // Identical content is already stored; the client can go straight to complete-upload
+            response.put("uploadRequired", upload.getUploadUrl() != null);
+            response.put("upload", upload);
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to create upload URL: " + e.getMessage()
+            ));
+        }
+    }
+
+    // Step two of a direct upload: record the image once the client's PUT has succeeded
+    @PostMapping("/{pgId}/images/complete-upload")
+    public ResponseEntity<?> completeImageUpload(
+            @PathVariable Long pgId,
+            @RequestParam String storageKey,
+            @RequestParam(required = false) String caption,
+            @RequestParam(defaultValue = "false") Boolean isPrimary) {
+        
+        try {
+            Optional<PG> pgOpt = pgService.findById(pgId);
+            if (pgOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            PGImage image = pgImageService.registerDirectUpload(pgOpt.get(), storageKey, caption, isPrimary);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Image uploaded successfully");
+            response.put("image", image);
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to upload image: " + e.getMessage()
+            ));
+        }
+    }
+
+    // Resumable uploads (tus-style): create a session, PATCH chunks at Upload-Offset, then finalize
+    @PostMapping("/{pgId}/images/uploads")
+    public ResponseEntity<?> createResumableUpload(
+            @PathVariable Long pgId,
+            @RequestParam String filename,
+            @RequestParam String contentType,
+            @RequestParam long size,
+            @RequestParam(required = false) String caption,
+            @RequestParam(defaultValue = "false") Boolean isPrimary) {
+        
+        try {
+            Optional<PG> pgOpt = pgService.findById(pgId);
+            if (pgOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            UploadSession session = resumableUploadService.createSession(pgOpt.get(), filename, contentType, size,
+                    caption, isPrimary);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("uploadId", session.getId());
+            response.put("offset", session.getUploadOffset());
+            response.put("expiresAt", session.getExpiresAt());
+            
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, "/pgs/" + pgId + "/images/uploads/" + session.getId())
+                    .header(UPLOAD_OFFSET, "0")
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to start upload: " + e.getMessage()
+            ));
+        }
+    }
+
+    // Lets a client that lost its connection find out where to resume
+    @RequestMapping(value = "/{pgId}/images/uploads/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getResumableUploadOffset(@PathVariable Long pgId, @PathVariable String uploadId) {
+        Optional<UploadSession> sessionOpt = resumableUploadService.findSession(pgId, uploadId);
+        if (sessionOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        UploadSession session = sessionOpt.get();
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getUploadOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getTotalSize()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .build();
+    }
+
+    @PatchMapping("/{pgId}/images/uploads/{uploadId}")
+    public ResponseEntity<?> appendResumableUpload(
+            @PathVariable Long pgId,
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request) {
+        
+        try {
+            if (resumableUploadService.findSession(pgId, uploadId).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            long newOffset = resumableUploadService.appendChunk(uploadId, offset, request.getInputStream(),
+                    request.getContentLengthLong());
+            
+            return ResponseEntity.noContent()
+                    .header(UPLOAD_OFFSET, String.valueOf(newOffset))
+                    .build();
+        } catch (IllegalStateException e) {
+            // Offset mismatch: the client should HEAD the upload and resume from the offset it reports
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to write chunk: " + e.getMessage()
+            ));
+        }
+    }
+
+    @PostMapping("/{pgId}/images/uploads/{uploadId}/finalize")
+    public ResponseEntity<?> finalizeResumableUpload(@PathVariable Long pgId, @PathVariable String uploadId) {
+        try {
+            if (resumableUploadService.findSession(pgId, uploadId).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            PGImage image = resumableUploadService.finalizeUpload(uploadId);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Image uploaded successfully");
+            response.put("image", image);
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Failed to upload image: " + e.getMessage()
+            ));
+        }
+    }
+
+    @DeleteMapping("/{pgId}/images/uploads/{uploadId}")
+    public ResponseEntity<?> cancelResumableUpload(@PathVariable Long pgId, @PathVariable String uploadId) {
+        if (resumableUploadService.findSession(pgId, uploadId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        resumableUploadService.cancel(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{pgId}/images")
     public ResponseEntity<?> getPGImages(@PathVariable Long pgId) {
         try {
@@ -5,14 +5,24 @@ import com.pgfinder.dto.LoginRequest;
 import com.pgfinder.dto.RefreshTokenRequest;
 import com.pgfinder.exception.EmailNotVerifiedException;
 import com.pgfinder.exception.InvalidTokenException;
+import com.pgfinder.exception.ServiceBusyException;
+import com.pgfinder.exception.TooManyRequestsException;
 import com.pgfinder.exception.UserAlreadyExistsException;
 import com.pgfinder.exception.UserNotFoundException;
+import com.pgfinder.model.RefreshSession;
 import com.pgfinder.model.User;
+import com.pgfinder.security.AuthRateLimiter;
+import com.pgfinder.security.AuthenticatedUser;
+import com.pgfinder.service.RefreshSessionService;
 import com.pgfinder.service.UserService;
+import com.pgfinder.service.UserStatsService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -28,6 +38,15 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private RefreshSessionService refreshSessionService;
+    
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+    
+    @Autowired
+    private UserStatsService userStatsService;
+    
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> registerUser(@Valid @RequestBody User user) {
         Map<String, Object> response = new HashMap<>();
@@ -42,6 +61,8 @@ public class UserController {
             response.put("success", false);
             response.put("message", e.getMessage());
             return ResponseEntity.badRequest().body(response);
+        } catch (ServiceBusyException e) {
+            return serviceBusy(e);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Registration failed");
@@ -50,11 +71,13 @@ public class UserController {
     }
     
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> loginUser(@RequestBody Map<String, String> loginRequest) {
+    public ResponseEntity<Map<String, Object>> loginUser(@RequestBody Map<String, String> loginRequest,
+                                                         HttpServletRequest request) {
         Map<String, Object> response = new HashMap<>();
         
         String email = loginRequest.get("email");
         String password = loginRequest.get("password");
+        authRateLimiter.checkLogin(request.getRemoteAddr(), email);
         
         Optional<User> userOpt = userService.loginUser(email, password);
         
@@ -171,17 +194,35 @@ public class UserController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getUserStats() {
         Map<String, Object> response = new HashMap<>();
-        Map<String, Object> stats = new HashMap<>();
-        
-        stats.put("totalUsers", userService.countUsersByType(User.UserType.USER));
-        stats.put("totalOwners", userService.countUsersByType(User.UserType.OWNER));
-        stats.put("totalAdmins", userService.countUsersByType(User.UserType.ADMIN));
         
+        // Served from in-memory counters; see UserStatsService
         response.put("success", true);
-        response.put("stats", stats);
+        response.put("stats", userStatsService.getStats());
         return ResponseEntity.ok(response);
     }
     
+    // Password hashing is saturated; endpoints without their own handling end up here too
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Map<String, Object>> serviceBusy(ServiceBusyException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+    
+    // Thrown by the rate limiter before any other work is done
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> tooManyRequests(TooManyRequestsException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+    
     // Helper method to remove password from response
     private Map<String, Object> sanitizeUser(User user) {
         Map<String, Object> sanitizedUser = new HashMap<>();
@@ -217,6 +258,8 @@ public class UserController {
                 "success", false,
                 "message", e.getMessage()
             ));
+        } catch (ServiceBusyException e) {
+            return serviceBusy(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                 "success", false,
@@ -226,9 +269,13 @@ public class UserController {
     }
     
     @PostMapping("/auth/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                              @RequestHeader(value = HttpHeaders.USER_AGENT, required = false) String userAgent,
+                                              HttpServletRequest request) {
+        authRateLimiter.checkLogin(request.getRemoteAddr(), loginRequest.getEmail());
         try {
-            JwtResponse jwtResponse = userService.authenticateUser(loginRequest.getEmail(), loginRequest.getPassword());
+            String deviceLabel = loginRequest.getDeviceLabel() != null ? loginRequest.getDeviceLabel() : userAgent;
+            JwtResponse jwtResponse = userService.authenticateUser(loginRequest.getEmail(), loginRequest.getPassword(), deviceLabel);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -247,6 +294,8 @@ public class UserController {
                 "success", false,
                 "message", "Invalid credentials"
             ));
+        } catch (ServiceBusyException e) {
+            return serviceBusy(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                 "success", false,
@@ -256,7 +305,9 @@ public class UserController {
     }
     
     @PostMapping("/auth/refresh")
-    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest,
+                                          HttpServletRequest request) {
+        authRateLimiter.checkRefresh(request.getRemoteAddr());
         try {
             JwtResponse jwtResponse = userService.refreshToken(refreshTokenRequest.getRefreshToken());
             
@@ -282,13 +333,25 @@ public class UserController {
     @PostMapping("/auth/logout")
     public ResponseEntity<?> logout(@RequestBody Map<String, String> request) {
         try {
-            String email = request.get("email");
-            userService.logout(email);
+            // Only the session the refresh token belongs to ends; DELETE /users/sessions signs out every device
+            String refreshToken = request.get("refreshToken");
+            if (refreshToken == null || refreshToken.isBlank()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Refresh token is required"
+                ));
+            }
+            userService.logout(refreshToken);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Logged out successfully"
             ));
+        } catch (InvalidTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                 "success", false,
@@ -297,6 +360,60 @@ public class UserController {
         }
     }
     
+    // ===============================
+    // SESSION ENDPOINTS
+    // ===============================
+    
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> getSessions(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        List<Map<String, Object>> sessions = refreshSessionService.findActiveSessions(currentUser.getUserId()).stream()
+                .map(this::describeSession)
+                .toList();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("sessions", sessions);
+        return ResponseEntity.ok(response);
+    }
+    
+    // Log out everywhere: ends every session of the signed-in user
+    @DeleteMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> revokeAllSessions(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        int revoked = refreshSessionService.revokeAll(currentUser.getUserId());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Logged out from all devices");
+        response.put("revokedSessions", revoked);
+        return ResponseEntity.ok(response);
+    }
+    
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Map<String, Object>> revokeSession(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                             @PathVariable Long sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        if (!refreshSessionService.revokeSession(currentUser.getUserId(), sessionId)) {
+            response.put("success", false);
+            response.put("message", "Session not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("message", "Session revoked");
+        return ResponseEntity.ok(response);
+    }
+    
+    // Never exposes the token hash
+    private Map<String, Object> describeSession(RefreshSession session) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("id", session.getId());
+        description.put("deviceLabel", session.getDeviceLabel());
+        description.put("createdAt", session.getCreatedAt());
+        description.put("lastUsedAt", session.getLastUsedAt());
+        description.put("expiresAt", session.getExpiresAt());
+        return description;
+    }
+    
     // ===============================
     // EMAIL VERIFICATION ENDPOINTS
     // ===============================
@@ -331,9 +448,11 @@ public class UserController {
     }
     
     @PostMapping("/resend-verification")
-    public ResponseEntity<?> resendVerificationEmail(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> resendVerificationEmail(@RequestBody Map<String, String> request,
+                                                     HttpServletRequest httpRequest) {
+        String email = request.get("email");
+        authRateLimiter.checkResendVerification(httpRequest.getRemoteAddr(), email);
         try {
-            String email = request.get("email");
             userService.resendVerificationEmail(email);
             
             return ResponseEntity.ok(Map.of(
@@ -0,0 +1,15 @@
+package com.pgfinder.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ImageGcReport {
+    private long filesScanned;
+    private long orphansDeleted;
+    private long bytesReclaimed;
+    private long inactivePGsPurged;
+    private long imageRecordsPurged;
+    private long durationMs;
+}
@@ -0,0 +1,19 @@
+package com.pgfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageLayoutMigrationReport {
+    private boolean running;
+    private long filesMoved;
+    private long rowsUpdated;
+    private long failures;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
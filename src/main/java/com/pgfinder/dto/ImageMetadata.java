@@ -0,0 +1,17 @@
+package com.pgfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageMetadata {
+    private Integer width;
+    private Integer height;
+    private Long byteSize;
+    // Hex color such as #a1b2c3
+    private String dominantColor;
+    private String blurHash;
+}
@@ -2,6 +2,7 @@ package com.pgfinder.dto;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,4 +17,8 @@ public class LoginRequest {
 
     @NotBlank(message = "Password is required")
     private String password;
+
+    // Optional name for the session, e.g. "Pixel 8"; defaults to the User-Agent
+    @Size(max = 100, message = "Device label must be at most 100 characters")
+    private String deviceLabel;
 }
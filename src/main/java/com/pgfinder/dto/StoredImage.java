@@ -0,0 +1,17 @@
+package com.pgfinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredImage {
+    private String url;
+    private String storageKey;
+    private String contentHash;
+    private long size;
+    // True when an identical file was already stored and no bytes were written
+    private boolean deduplicated;
+}
@@ -0,0 +1,26 @@
+package com.pgfinder.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+public class UserStats {
+    // Active accounts by type
+    private long totalUsers;
+    private long totalOwners;
+    private long totalAdmins;
+    private long verifiedUsers;
+    private long verifiedOwners;
+    private double userVerifiedRatio;
+    private double ownerVerifiedRatio;
+    private long activePGs;
+    private long verifiedPGs;
+    private long ownersWithPGs;
+    private Map<LocalDate, Long> signupsPerDay;
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,24 @@
+package com.pgfinder.dto;
+
+import com.pgfinder.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// What admin listings show for a user; selected column by column, so the password hash is never read
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+    private Long id;
+    private String name;
+    private String email;
+    private String phoneNumber;
+    private User.UserType userType;
+    private Boolean isActive;
+    private Boolean isVerified;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.pgfinder.exception;
+
+// The server is shedding load; the client should retry after a short pause (HTTP 503)
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.pgfinder.exception;
+
+// A client exceeded a rate limit (HTTP 429); retryAfterSeconds goes into the Retry-After header
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
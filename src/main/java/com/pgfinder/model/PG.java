@@ -1,10 +1,14 @@
 package com.pgfinder.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -140,6 +144,38 @@ public class PG {
     @Column(name = "total_reviews")
     private Integer totalReviews = 0;
     
+    // How many users have this PG in their favorites; only changed by PGRepository.adjustFavoriteCount
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(name = "favorite_count", nullable = false, insertable = false, updatable = false)
+    private Integer favoriteCount = 0;
+    
+    // Denormalized copy of the primary image so listings never read pg_images.
+    // Only written by the bulk updates in PGRepository, never by entity saves.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_id", insertable = false, updatable = false)
+    private Long primaryImageId;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_url", insertable = false, updatable = false)
+    private String primaryImageUrl;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_width", insertable = false, updatable = false)
+    private Integer primaryImageWidth;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_height", insertable = false, updatable = false)
+    private Integer primaryImageHeight;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_dominant_color", length = 7, insertable = false, updatable = false)
+    private String primaryImageDominantColor;
+    
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "primary_image_blur_hash", length = 64, insertable = false, updatable = false)
+    private String primaryImageBlurHash;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -151,8 +187,13 @@ public class PG {
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
+    @JsonIgnoreProperties({"password", "verificationToken", "verificationTokenExpiry", "lastVerificationSent",
+                           "refreshToken", "refreshTokenExpiry", "ownedPGs", "favoritePGs",
+                           "hibernateLazyInitializer", "handler"})
     private User owner;
     
+    // The gallery is served by GET /pgs/{pgId}/images; listings use the primary image columns above
+    @JsonIgnore
     @OneToMany(mappedBy = "pg", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<PGImage> images;
     
@@ -463,6 +504,38 @@ public class PG {
         this.totalReviews = totalReviews;
     }
     
+    public Integer getFavoriteCount() {
+        return favoriteCount;
+    }
+    
+    public void setFavoriteCount(Integer favoriteCount) {
+        this.favoriteCount = favoriteCount;
+    }
+    
+    public Long getPrimaryImageId() {
+        return primaryImageId;
+    }
+    
+    public String getPrimaryImageUrl() {
+        return primaryImageUrl;
+    }
+    
+    public Integer getPrimaryImageWidth() {
+        return primaryImageWidth;
+    }
+    
+    public Integer getPrimaryImageHeight() {
+        return primaryImageHeight;
+    }
+    
+    public String getPrimaryImageDominantColor() {
+        return primaryImageDominantColor;
+    }
+    
+    public String getPrimaryImageBlurHash() {
+        return primaryImageBlurHash;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -1,5 +1,6 @@
 package com.pgfinder.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import org.hibernate.annotations.CreationTimestamp;
@@ -7,7 +8,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pg_images")
+@Table(name = "pg_images", indexes = {
+    @Index(name = "idx_pg_images_storage_key", columnList = "storage_key"),
+    @Index(name = "idx_pg_images_content_hash", columnList = "content_hash")
+})
 public class PGImage {
     
     @Id
@@ -20,6 +24,28 @@ public class PGImage {
     
     private String caption;
     
+    // SHA-256 of the file contents; identical uploads share one stored file
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    // Path of the stored file relative to the upload root, used for reference counting
+    @Column(name = "storage_key")
+    private String storageKey;
+    
+    // Placeholder metadata computed at upload time so clients can lay out and tint the image before it loads
+    private Integer width;
+    
+    private Integer height;
+    
+    @Column(name = "byte_size")
+    private Long byteSize;
+    
+    @Column(name = "dominant_color", length = 7)
+    private String dominantColor;
+    
+    @Column(name = "blur_hash", length = 64)
+    private String blurHash;
+    
     @Column(name = "is_primary")
     private Boolean isPrimary = false;
     
@@ -27,6 +53,7 @@ public class PGImage {
     @Column(name = "uploaded_at", nullable = false, updatable = false)
     private LocalDateTime uploadedAt;
     
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pg_id", nullable = false)
     private PG pg;
@@ -66,6 +93,62 @@ public class PGImage {
         this.caption = caption;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
+    public String getStorageKey() {
+        return storageKey;
+    }
+    
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+    
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    public Long getByteSize() {
+        return byteSize;
+    }
+    
+    public void setByteSize(Long byteSize) {
+        this.byteSize = byteSize;
+    }
+    
+    public String getDominantColor() {
+        return dominantColor;
+    }
+    
+    public void setDominantColor(String dominantColor) {
+        this.dominantColor = dominantColor;
+    }
+    
+    public String getBlurHash() {
+        return blurHash;
+    }
+    
+    public void setBlurHash(String blurHash) {
+        this.blurHash = blurHash;
+    }
+    
     public Boolean getIsPrimary() {
         return isPrimary;
     }
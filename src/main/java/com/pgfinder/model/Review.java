@@ -1,5 +1,7 @@
 package com.pgfinder.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -29,12 +31,16 @@ public class Review {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pg_id", nullable = false)
     private PG pg;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnoreProperties({"password", "verificationToken", "verificationTokenExpiry", "lastVerificationSent",
+                           "refreshToken", "refreshTokenExpiry", "ownedPGs", "favoritePGs",
+                           "hibernateLazyInitializer", "handler"})
     private User user;
     
     // Constructors
@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_unverified", columnList = "is_verified, last_verification_sent"),
+    @Index(name = "idx_users_type_id", columnList = "user_type, id")
+})
 public class User {
     
     @Id
@@ -49,22 +52,9 @@ public class User {
     @Column(name = "is_verified", nullable = false)
     private boolean isVerified = false;
 
-    @Column(name = "verification_token")
-    private String verificationToken;
-
-    @Column(name = "verification_token_expiry")
-    private LocalDateTime verificationTokenExpiry;
-
     @Column(name = "last_verification_sent")
     private LocalDateTime lastVerificationSent;
 
-    // JWT refresh token fields
-    @Column(name = "refresh_token")
-    private String refreshToken;
-
-    @Column(name = "refresh_token_expiry")
-    private LocalDateTime refreshTokenExpiry;
-    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -79,10 +69,13 @@ public class User {
     
     // For Users - Many to Many relationship with PG (favorites/bookmarks)
     @ManyToMany
+    // Read and written through the native queries in PGRepository; the unique (user_id, pg_id) index
+    // both rejects duplicates and serves the "which of these PGs are favorited" lookup
     @JoinTable(
         name = "user_favorites",
         joinColumns = @JoinColumn(name = "user_id"),
-        inverseJoinColumns = @JoinColumn(name = "pg_id")
+        inverseJoinColumns = @JoinColumn(name = "pg_id"),
+        uniqueConstraints = @UniqueConstraint(name = "ux_user_favorites_user_pg", columnNames = {"user_id", "pg_id"})
     )
     private List<PG> favoritePGs;
     
@@ -198,22 +191,6 @@ public class User {
         isVerified = verified;
     }
     
-    public String getVerificationToken() {
-        return verificationToken;
-    }
-    
-    public void setVerificationToken(String verificationToken) {
-        this.verificationToken = verificationToken;
-    }
-    
-    public LocalDateTime getVerificationTokenExpiry() {
-        return verificationTokenExpiry;
-    }
-    
-    public void setVerificationTokenExpiry(LocalDateTime verificationTokenExpiry) {
-        this.verificationTokenExpiry = verificationTokenExpiry;
-    }
-    
     public LocalDateTime getLastVerificationSent() {
         return lastVerificationSent;
     }
@@ -221,20 +198,4 @@ public class User {
     public void setLastVerificationSent(LocalDateTime lastVerificationSent) {
         this.lastVerificationSent = lastVerificationSent;
     }
-    
-    public String getRefreshToken() {
-        return refreshToken;
-    }
-    
-    public void setRefreshToken(String refreshToken) {
-        this.refreshToken = refreshToken;
-    }
-    
-    public LocalDateTime getRefreshTokenExpiry() {
-        return refreshTokenExpiry;
-    }
-    
-    public void setRefreshTokenExpiry(LocalDateTime refreshTokenExpiry) {
-        this.refreshTokenExpiry = refreshTokenExpiry;
-    }
 }
@@ -0,0 +1,73 @@
+package com.pgfinder.repository;
+
+import com.pgfinder.model.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+    
+    // Due rows, plus rows whose worker died mid-batch and let the lease run out
+    @Query("SELECT e.id FROM OutboxEmail e WHERE (e.status = PENDING AND e.nextAttemptAt <= :now) " +
+           "OR (e.status = SENDING AND e.leaseExpiresAt < :now) ORDER BY e.nextAttemptAt")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    // Takes the rows under claimToken, re-checking the same condition so two workers that picked
+    // the same ids can't both get a row
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = SENDING, e.claimToken = :claimToken, " +
+           "e.leaseExpiresAt = :leaseExpiresAt WHERE e.id IN :ids AND " +
+           "((e.status = PENDING AND e.nextAttemptAt <= :now) " +
+           "OR (e.status = SENDING AND e.leaseExpiresAt < :now))")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken,
+              @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt, @Param("now") LocalDateTime now);
+    
+    List<OutboxEmail> findByClaimToken(String claimToken);
+    
+    // The body carries a live verification or reset link, so it is blanked as soon as the row is done with
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = SENT, e.sentAt = :now, e.body = '', " +
+           "e.attempts = e.attempts + 1, e.claimToken = NULL, e.leaseExpiresAt = NULL, e.lastError = NULL " +
+           "WHERE e.id IN :ids AND e.claimToken = :claimToken")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+    
+    // Back to PENDING, to be retried at nextAttemptAt
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = PENDING, e.nextAttemptAt = :nextAttemptAt, e.attempts = e.attempts + 1, " +
+           "e.lastError = :lastError, e.claimToken = NULL, e.leaseExpiresAt = NULL " +
+           "WHERE e.id = :id AND e.claimToken = :claimToken")
+    int markRetry(@Param("id") Long id, @Param("claimToken") String claimToken,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+    
+    // Gives up on the row; nextAttemptAt records when, for the retention sweep
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = DEAD, e.nextAttemptAt = :now, e.attempts = e.attempts + 1, e.body = '', " +
+           "e.lastError = :lastError, e.claimToken = NULL, e.leaseExpiresAt = NULL " +
+           "WHERE e.id = :id AND e.claimToken = :claimToken")
+    int markDead(@Param("id") Long id, @Param("claimToken") String claimToken,
+                 @Param("now") LocalDateTime now, @Param("lastError") String lastError);
+    
+    long countByStatus(OutboxEmail.Status status);
+    
+    @Query("SELECT e.id FROM OutboxEmail e WHERE (e.status = SENT AND e.sentAt < :cutoff) " +
+           "OR (e.status = DEAD AND e.nextAttemptAt < :cutoff)")
+    List<Long> findFinishedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEmail e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -2,10 +2,17 @@ package com.pgfinder.repository;
 
 import com.pgfinder.model.PG;
 import com.pgfinder.model.PGImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PGImageRepository extends JpaRepository<PGImage, Long> {
@@ -21,4 +28,42 @@ public interface PGImageRepository extends JpaRepository<PGImage, Long> {
     boolean existsByPgAndIsPrimaryTrue(PG pg);
     
     void deleteByPg(PG pg);
+    
+    // Moves the primary flag to one image in a single statement, touching only the old and new primary rows
+    @Modifying
+    @Query("UPDATE PGImage i SET i.isPrimary = CASE WHEN i.id = :imageId THEN true ELSE false END " +
+           "WHERE i.pg.id = :pgId AND (i.isPrimary = true OR i.id = :imageId)")
+    int markPrimaryImage(@Param("pgId") Long pgId, @Param("imageId") Long imageId);
+    
+    // Reference count for a shared, content-addressed file
+    long countByStorageKey(String storageKey);
+    
+    Optional<PGImage> findFirstByContentHashAndWidthIsNotNull(String contentHash);
+    
+    // Which of these stored files are still referenced (used by the orphan sweeper)
+    @Query("SELECT DISTINCT i.storageKey FROM PGImage i WHERE i.storageKey IN :storageKeys")
+    List<String> findReferencedStorageKeys(@Param("storageKeys") Collection<String> storageKeys);
+    
+    @Query("SELECT DISTINCT i.pg.id FROM PGImage i WHERE i.pg.isActive = false AND i.pg.updatedAt < :cutoff")
+    List<Long> findInactivePgIdsWithImages(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM PGImage i WHERE i.pg.id IN :pgIds")
+    int deleteByPgIds(@Param("pgIds") Collection<Long> pgIds);
+    
+    // Fill storage keys for images uploaded before content-addressed storage
+    @Modifying
+    @Query("UPDATE PGImage i SET i.storageKey = SUBSTRING(i.imageUrl, LOCATE('/images/', i.imageUrl) + 8) " +
+           "WHERE i.storageKey IS NULL AND LOCATE('/images/', i.imageUrl) > 0")
+    int backfillStorageKeys();
+    
+    // Storage keys still in the flat layout (<folder>/<file>, no shard directories), in key order
+    @Query("SELECT DISTINCT i.storageKey FROM PGImage i WHERE i.storageKey LIKE CONCAT(:folder, '/%') " +
+           "AND i.storageKey NOT LIKE CONCAT(:folder, '/%/%') AND i.storageKey > :after ORDER BY i.storageKey")
+    List<String> findFlatStorageKeys(@Param("folder") String folder, @Param("after") String after, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE PGImage i SET i.storageKey = :newKey, i.imageUrl = REPLACE(i.imageUrl, :oldKey, :newKey) " +
+           "WHERE i.storageKey = :oldKey")
+    int relocateStorageKey(@Param("oldKey") String oldKey, @Param("newKey") String newKey);
 }
@@ -5,11 +5,13 @@ import com.pgfinder.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -97,4 +99,68 @@ public interface PGRepository extends JpaRepository<PG, Long> {
     
     // Count PGs by owner
     Long countByOwnerAndIsActiveTrue(User owner);
+    
+    @Query("SELECT COUNT(p) AS active, SUM(CASE WHEN p.isVerified = true THEN 1 ELSE 0 END) AS verified, " +
+           "COUNT(DISTINCT p.owner.id) AS owners FROM PG p WHERE p.isActive = true")
+    ListingCounts countActiveListings();
+    
+    // Point the PG at its primary image in a single statement
+    @Modifying
+    @Query("UPDATE PG p SET p.primaryImageId = :imageId, p.primaryImageUrl = :imageUrl, " +
+           "p.primaryImageWidth = :width, p.primaryImageHeight = :height, " +
+           "p.primaryImageDominantColor = :dominantColor, p.primaryImageBlurHash = :blurHash " +
+           "WHERE p.id = :pgId")
+    int updatePrimaryImage(@Param("pgId") Long pgId,
+                           @Param("imageId") Long imageId,
+                           @Param("imageUrl") String imageUrl,
+                           @Param("width") Integer width,
+                           @Param("height") Integer height,
+                           @Param("dominantColor") String dominantColor,
+                           @Param("blurHash") String blurHash);
+    
+    @Modifying
+    @Query("UPDATE PG p SET p.primaryImageId = null, p.primaryImageUrl = null, " +
+           "p.primaryImageWidth = null, p.primaryImageHeight = null, " +
+           "p.primaryImageDominantColor = null, p.primaryImageBlurHash = null " +
+           "WHERE p.id = :pgId")
+    int clearPrimaryImage(@Param("pgId") Long pgId);
+    
+    @Modifying
+    @Query("UPDATE PG p SET p.primaryImageId = null, p.primaryImageUrl = null, " +
+           "p.primaryImageWidth = null, p.primaryImageHeight = null, " +
+           "p.primaryImageDominantColor = null, p.primaryImageBlurHash = null " +
+           "WHERE p.id IN :pgIds")
+    int clearPrimaryImages(@Param("pgIds") Collection<Long> pgIds);
+    
+    // Re-copy the primary image URL after images were moved to new storage keys
+    @Modifying
+    @Query("UPDATE PG p SET p.primaryImageUrl = (SELECT i.imageUrl FROM PGImage i WHERE i.id = p.primaryImageId) " +
+           "WHERE p.primaryImageId IN (SELECT i.id FROM PGImage i WHERE i.storageKey IN :storageKeys)")
+    int refreshPrimaryImageUrls(@Param("storageKeys") Collection<String> storageKeys);
+    
+    // Favorites live only in the user_favorites join table; these never load User.favoritePGs
+    @Modifying
+    @Query(value = "INSERT INTO user_favorites (user_id, pg_id) VALUES (:userId, :pgId) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int addFavorite(@Param("userId") Long userId, @Param("pgId") Long pgId);
+    
+    @Modifying
+    @Query(value = "DELETE FROM user_favorites WHERE user_id = :userId AND pg_id = :pgId", nativeQuery = true)
+    int removeFavorite(@Param("userId") Long userId, @Param("pgId") Long pgId);
+    
+    @Query(value = "SELECT pg_id FROM user_favorites WHERE user_id = :userId AND pg_id IN (:pgIds)", nativeQuery = true)
+    List<Long> findFavoritedPgIds(@Param("userId") Long userId, @Param("pgIds") Collection<Long> pgIds);
+    
+    @Query("SELECT p FROM User u JOIN u.favoritePGs p WHERE u.id = :userId AND p.isActive = true ORDER BY p.id DESC")
+    Page<PG> findFavoritePGs(@Param("userId") Long userId, Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE PG p SET p.favoriteCount = p.favoriteCount + :delta WHERE p.id = :pgId")
+    int adjustFavoriteCount(@Param("pgId") Long pgId, @Param("delta") int delta);
+    
+    interface ListingCounts {
+        Long getActive();
+        Long getVerified();
+        Long getOwners();
+    }
 }
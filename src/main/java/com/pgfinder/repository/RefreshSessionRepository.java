@@ -0,0 +1,60 @@
+package com.pgfinder.repository;
+
+import com.pgfinder.model.RefreshSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RefreshSessionRepository extends JpaRepository<RefreshSession, Long> {
+    
+    List<RefreshSession> findByUserIdAndExpiresAtAfterOrderByLastUsedAtDesc(Long userId, LocalDateTime now);
+    
+    // Rotation in one statement: only the holder of the current, unexpired token can swap it, so two
+    // concurrent refreshes with the same token can't both succeed
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshSession s SET s.tokenHash = :newHash, s.expiresAt = :expiresAt, s.lastUsedAt = :now " +
+           "WHERE s.tokenHash = :oldHash AND s.userId = :userId AND s.expiresAt > :now")
+    int rotate(@Param("oldHash") String oldHash, @Param("newHash") String newHash, @Param("userId") Long userId,
+               @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.id = :id AND s.userId = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+    
+    @Query("SELECT s.tokenHash FROM RefreshSession s WHERE s.userId = :userId")
+    List<String> findTokenHashesByUserId(@Param("userId") Long userId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    @Query("SELECT s.id FROM RefreshSession s WHERE s.expiresAt < :now")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshSession s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
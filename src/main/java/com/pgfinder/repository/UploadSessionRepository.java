@@ -0,0 +1,33 @@
+package com.pgfinder.repository;
+
+import com.pgfinder.model.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    
+    // Compare-and-set on the offset, so two writers for the same session can't both advance it
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.uploadOffset = :newOffset " +
+           "WHERE s.id = :id AND s.uploadOffset = :expectedOffset")
+    int advanceOffset(@Param("id") String id, @Param("expectedOffset") Long expectedOffset,
+                      @Param("newOffset") Long newOffset);
+    
+    @Query("SELECT s.id FROM UploadSession s WHERE s.expiresAt < :now")
+    List<String> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id")
+    int deleteSession(@Param("id") String id);
+}
@@ -1,13 +1,24 @@
 package com.pgfinder.repository;
 
+import com.pgfinder.dto.UserSummary;
 import com.pgfinder.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -26,9 +37,97 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT COUNT(u) FROM User u WHERE u.userType = :userType AND u.isActive = true")
     Long countActiveUsersByType(@Param("userType") User.UserType userType);
     
-    // Email verification methods
-    Optional<User> findByVerificationToken(String verificationToken);
+    // Everything the stats endpoint reports about users, in one pass over the table
+    @Query("SELECT u.userType AS userType, " +
+           "SUM(CASE WHEN u.isActive = true THEN 1 ELSE 0 END) AS active, " +
+           "SUM(CASE WHEN u.isActive = true AND u.isVerified = true THEN 1 ELSE 0 END) AS activeVerified " +
+           "FROM User u GROUP BY u.userType")
+    List<TypeCounts> countByUserType();
     
-    // Refresh token methods
-    Optional<User> findByRefreshToken(String refreshToken);
+    @Query("SELECT CAST(u.createdAt AS LocalDate) AS day, COUNT(u) AS signups FROM User u " +
+           "WHERE u.createdAt >= :since GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<DailySignups> countSignupsPerDay(@Param("since") LocalDateTime since);
+    
+    // Accounts that were sent a verification email before the cutoff and never confirmed it. Users
+    // created through the legacy /register (never sent one) and anyone with PGs or reviews are left alone.
+    @Query("SELECT u.id FROM User u WHERE u.isVerified = false AND u.lastVerificationSent < :cutoff " +
+           "AND u.userType <> ADMIN " +
+           "AND NOT EXISTS (SELECT 1 FROM PG p WHERE p.owner = u) " +
+           "AND NOT EXISTS (SELECT 1 FROM Review r WHERE r.user = u) ORDER BY u.id")
+    List<Long> findStaleUnverifiedIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    // Locks the rows of the given users that are still unverified, so verifying one of them waits until
+    // the surrounding transaction ends; must run inside that transaction
+    @Query(value = "SELECT id FROM users WHERE id IN :ids AND is_verified = false ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<Long> lockUnverifiedByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Takes the users' favorites off pgs.favorite_count; run before deleteFavoritesByUserIdIn
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE pgs SET favorite_count = favorite_count - " +
+                   "(SELECT COUNT(*) FROM user_favorites f WHERE f.pg_id = pgs.id AND f.user_id IN :ids) " +
+                   "WHERE id IN (SELECT pg_id FROM user_favorites WHERE user_id IN :ids)", nativeQuery = true)
+    int releaseFavoriteCountsOfUserIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM user_favorites WHERE user_id IN :ids", nativeQuery = true)
+    int deleteFavoritesByUserIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Re-checks isVerified so an account confirmed since it was selected survives
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id IN :ids AND u.isVerified = false")
+    int deleteUnverifiedByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Keyset pages for the admin listings: WHERE id > :afterId ORDER BY id walks idx_users_type_id
+    // instead of counting and skipping rows the way OFFSET does
+    @Query("SELECT new com.pgfinder.dto.UserSummary(u.id, u.name, u.email, u.phoneNumber, u.userType, " +
+           "u.isActive, u.isVerified, u.createdAt, u.updatedAt) FROM User u " +
+           "WHERE u.userType = :userType AND u.isActive = true AND u.id > :afterId ORDER BY u.id")
+    List<UserSummary> findActiveSummariesByTypeAfter(@Param("userType") User.UserType userType,
+                                                     @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT new com.pgfinder.dto.UserSummary(u.id, u.name, u.email, u.phoneNumber, u.userType, " +
+           "u.isActive, u.isVerified, u.createdAt, u.updatedAt) FROM User u " +
+           "WHERE u.isActive = true AND u.id > :afterId ORDER BY u.id")
+    List<UserSummary> findActiveSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Row by row from an open cursor; must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.pgfinder.dto.UserSummary(u.id, u.name, u.email, u.phoneNumber, u.userType, " +
+           "u.isActive, u.isVerified, u.createdAt, u.updatedAt) FROM User u " +
+           "WHERE u.userType = :userType AND u.isActive = true ORDER BY u.id")
+    Stream<UserSummary> streamActiveSummariesByType(@Param("userType") User.UserType userType);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.pgfinder.dto.UserSummary(u.id, u.name, u.email, u.phoneNumber, u.userType, " +
+           "u.isActive, u.isVerified, u.createdAt, u.updatedAt) FROM User u " +
+           "WHERE u.isActive = true ORDER BY u.id")
+    Stream<UserSummary> streamActiveSummaries();
+    
+    // Just what a token refresh needs, without loading the entity
+    @Query("SELECT u.id AS id, u.email AS email, u.name AS name, u.userType AS userType, u.isVerified AS verified " +
+           "FROM User u WHERE u.id = :id AND u.isActive = true")
+    Optional<AuthView> findAuthViewByIdAndIsActiveTrue(@Param("id") Long id);
+    
+    interface AuthView {
+        Long getId();
+        String getEmail();
+        String getName();
+        User.UserType getUserType();
+        boolean isVerified();
+    }
+    
+    interface TypeCounts {
+        User.UserType getUserType();
+        Long getActive();
+        Long getActiveVerified();
+    }
+    
+    interface DailySignups {
+        LocalDate getDay();
+        Long getSignups();
+    }
 }
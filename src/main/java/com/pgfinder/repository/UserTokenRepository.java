@@ -0,0 +1,39 @@
+package com.pgfinder.repository;
+
+import com.pgfinder.model.UserToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserTokenRepository extends JpaRepository<UserToken, Long> {
+    
+    Optional<UserToken> findByTokenHashAndPurpose(String tokenHash, UserToken.Purpose purpose);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserToken t WHERE t.userId = :userId AND t.purpose = :purpose")
+    int deleteByUserIdAndPurpose(@Param("userId") Long userId, @Param("purpose") UserToken.Purpose purpose);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserToken t WHERE t.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+    
+    @Query("SELECT t.id FROM UserToken t WHERE t.expiresAt < :now")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserToken t WHERE t.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
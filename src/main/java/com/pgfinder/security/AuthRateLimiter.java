@@ -0,0 +1,127 @@
+package com.pgfinder.security;
+
+import com.pgfinder.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+// Throttles the sign-in endpoints by client IP and by the email being tried. Controllers call it first
+// thing, so a rejected request never reaches BCrypt or the database.
+@Component
+public class AuthRateLimiter {
+
+    // Buckets per row of each limiter; memory is width x depth x 8 bytes per limiter whatever the traffic
+    @Value("${app.rate-limit.buckets:4096}")
+    private int width;
+
+    @Value("${app.rate-limit.depth:3}")
+    private int depth;
+
+    @Value("${app.rate-limit.login.ip.capacity:20}")
+    private int loginIpCapacity;
+
+    @Value("${app.rate-limit.login.ip.refill-period:PT3S}")
+    private Duration loginIpRefill;
+
+    @Value("${app.rate-limit.login.email.capacity:5}")
+    private int loginEmailCapacity;
+
+    @Value("${app.rate-limit.login.email.refill-period:PT30S}")
+    private Duration loginEmailRefill;
+
+    @Value("${app.rate-limit.refresh.ip.capacity:30}")
+    private int refreshIpCapacity;
+
+    @Value("${app.rate-limit.refresh.ip.refill-period:PT1S}")
+    private Duration refreshIpRefill;
+
+    @Value("${app.rate-limit.resend-verification.ip.capacity:5}")
+    private int resendIpCapacity;
+
+    @Value("${app.rate-limit.resend-verification.ip.refill-period:PT1M}")
+    private Duration resendIpRefill;
+
+    @Value("${app.rate-limit.resend-verification.email.capacity:2}")
+    private int resendEmailCapacity;
+
+    @Value("${app.rate-limit.resend-verification.email.refill-period:PT3M}")
+    private Duration resendEmailRefill;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TokenBucketLimiter loginByIp;
+    private TokenBucketLimiter loginByEmail;
+    private TokenBucketLimiter refreshByIp;
+    private TokenBucketLimiter resendByIp;
+    private TokenBucketLimiter resendByEmail;
+
+    // One rejection counter per limiter above
+    private Counter loginByIpRejected;
+    private Counter loginByEmailRejected;
+    private Counter refreshByIpRejected;
+    private Counter resendByIpRejected;
+    private Counter resendByEmailRejected;
+
+    @PostConstruct
+    public void init() {
+        loginByIp = new TokenBucketLimiter("app.rate-limit.login.ip", loginIpCapacity, loginIpRefill, width, depth);
+        loginByEmail = new TokenBucketLimiter("app.rate-limit.login.email", loginEmailCapacity, loginEmailRefill, width, depth);
+        refreshByIp = new TokenBucketLimiter("app.rate-limit.refresh.ip", refreshIpCapacity, refreshIpRefill, width, depth);
+        resendByIp = new TokenBucketLimiter("app.rate-limit.resend-verification.ip",
+                resendIpCapacity, resendIpRefill, width, depth);
+        resendByEmail = new TokenBucketLimiter("app.rate-limit.resend-verification.email",
+                resendEmailCapacity, resendEmailRefill, width, depth);
+        
+        loginByIpRejected = rejectedCounter("login", "ip");
+        loginByEmailRejected = rejectedCounter("login", "email");
+        refreshByIpRejected = rejectedCounter("refresh", "ip");
+        resendByIpRejected = rejectedCounter("resend_verification", "ip");
+        resendByEmailRejected = rejectedCounter("resend_verification", "email");
+    }
+
+    public void checkLogin(String clientIp, String email) {
+        check(loginByIp, loginByIpRejected, clientIp);
+        if (email != null) {
+            check(loginByEmail, loginByEmailRejected, normalize(email));
+        }
+    }
+
+    public void checkRefresh(String clientIp) {
+        check(refreshByIp, refreshByIpRejected, clientIp);
+    }
+
+    public void checkResendVerification(String clientIp, String email) {
+        check(resendByIp, resendByIpRejected, clientIp);
+        if (email != null) {
+            check(resendByEmail, resendByEmailRejected, normalize(email));
+        }
+    }
+
+    private Counter rejectedCounter(String endpoint, String keyType) {
+        return Counter.builder("pgfinder.auth.rate_limited")
+                .description("Sign-in requests rejected by the rate limiter")
+                .tag("endpoint", endpoint)
+                .tag("key", keyType)
+                .register(meterRegistry);
+    }
+
+    private void check(TokenBucketLimiter limiter, Counter rejected, String key) {
+        long waitMillis = limiter.tryAcquire(key);
+        if (waitMillis > 0) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many attempts, please try again later",
+                    Math.max(1, (waitMillis + 999) / 1000));
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,34 @@
+package com.pgfinder.security;
+
+import java.io.Serializable;
+
+// Principal built from access token claims; it is never loaded from the database
+public final class AuthenticatedUser implements Serializable {
+
+    private final Long userId;
+    private final String email;
+    private final String userType;
+
+    public AuthenticatedUser(Long userId, String email, String userType) {
+        this.userId = userId;
+        this.email = email;
+        this.userType = userType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
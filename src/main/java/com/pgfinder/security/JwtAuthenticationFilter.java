@@ -0,0 +1,161 @@
+package com.pgfinder.security;
+
+import com.pgfinder.exception.InvalidTokenException;
+import com.pgfinder.util.JwtClaims;
+import com.pgfinder.util.JwtUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Authenticates requests carrying "Authorization: Bearer <access token>" from the token's claims alone.
+// Tokens that verified recently are remembered until they expire, so a client's follow-up requests skip
+// the HMAC check and JSON parsing. Requests without a valid token continue unauthenticated and are
+// turned away by the authorization rules if the endpoint needs a user.
+//
+// Not a Spring bean on purpose: as a bean Boot would also register it with the servlet container,
+// where it would run outside the security filter chain.
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+    private final int maxCachedTokens;
+
+    // Keyed by the whole token, never by the signature alone, so a cache hit implies an identical token
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, int maxCachedTokens, MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.maxCachedTokens = maxCachedTokens;
+        
+        Gauge.builder("pgfinder.jwt.verified.cache.size", verifiedTokens, Map::size)
+                .description("Access tokens remembered as verified")
+                .register(meterRegistry);
+        cacheHits = Counter.builder("pgfinder.jwt.verified.cache")
+                .description("Bearer tokens looked up in the verified-token cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        cacheMisses = Counter.builder("pgfinder.jwt.verified.cache")
+                .description("Bearer tokens looked up in the verified-token cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        verifiedTimer = verifyTimer(meterRegistry, "valid");
+        rejectedTimer = verifyTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("pgfinder.jwt.verify")
+                .description("Signature check and claim parsing of access tokens not found in the cache")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            String token = header.substring(BEARER_PREFIX.length()).trim();
+            VerifiedToken verified = verify(token);
+            if (verified != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(verified.user, null, verified.authorities);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+            }
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+
+    // Returns null when the token is invalid, expired or not an access token
+    private VerifiedToken verify(String token) {
+        if (token.isEmpty()) {
+            return null;
+        }
+        
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                cacheHits.increment();
+                return cached;
+            }
+            verifiedTokens.remove(token, cached);
+            return null;
+        }
+        cacheMisses.increment();
+        
+        JwtClaims claims;
+        long started = System.nanoTime();
+        try {
+            claims = jwtUtil.validateAccessToken(token);
+        } catch (InvalidTokenException e) {
+            rejectedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return null;
+        }
+        verifiedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        
+        VerifiedToken verified = new VerifiedToken(
+                new AuthenticatedUser(claims.getUserId(), claims.getSubject(), claims.getUserType()),
+                List.of(new SimpleGrantedAuthority("ROLE_" + claims.getUserType())),
+                claims.getExpiresAt().toEpochMilli());
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            evict(now);
+        }
+        verifiedTokens.put(token, verified);
+        return verified;
+    }
+
+    // Drops expired entries first; if the cache is still full, frees a tenth of it by dropping arbitrary
+    // ones so the scan isn't repeated on every new token
+    private void evict(long now) {
+        verifiedTokens.values().removeIf(entry -> entry.expiresAt <= now);
+        int target = maxCachedTokens - Math.max(1, maxCachedTokens / 10);
+        Iterator<String> iterator = verifiedTokens.keySet().iterator();
+        while (verifiedTokens.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final AuthenticatedUser user;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAt;
+        
+        private VerifiedToken(AuthenticatedUser user, List<GrantedAuthority> authorities, long expiresAt) {
+            this.user = user;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pgfinder.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Token buckets for an unbounded set of keys in a fixed amount of memory. Keys are hashed into `depth`
+// rows of `width` buckets, count-min style: a request is allowed when at least one of its buckets has
+// a token, and takes a token from every bucket it can. A noisy key drains all of its own buckets, while
+// a quiet key that shares one bucket with it still gets through on another row.
+//
+// Each bucket is a single long updated with CAS (refill timestamp in the high bits, milli-tokens in the
+// low bits), so there are no locks and no per-key allocation.
+public class TokenBucketLimiter {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+    private static final long RATE_SCALE = 1_000_000;
+
+    private final long capacityMilli;
+    // Milli-tokens regained per millisecond, times RATE_SCALE to keep integer math
+    private final long refillPerMs;
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray buckets;
+    private final long seed1;
+    private final long seed2;
+    private final long startNanos = System.nanoTime();
+
+    // One token comes back every refillPeriod, up to capacity. name is the limiter's property prefix,
+    // used in error messages.
+    public TokenBucketLimiter(String name, int capacity, Duration refillPeriod, int width, int depth) {
+        if (capacity < 1 || capacity * MILLI > TOKEN_MASK) {
+            throw new IllegalArgumentException(name + ".capacity must be between 1 and " + TOKEN_MASK / MILLI);
+        }
+        // Buckets refill in whole milliseconds
+        if (refillPeriod.isNegative() || refillPeriod.toMillis() < 1) {
+            throw new IllegalArgumentException(name + ".refill-period must be at least 1ms, was " + refillPeriod);
+        }
+        this.capacityMilli = capacity * MILLI;
+        this.refillPerMs = Math.max(1, MILLI * RATE_SCALE / refillPeriod.toMillis());
+        this.width = width;
+        this.depth = depth;
+        this.buckets = new AtomicLongArray(width * depth);
+        // Random seeds, so nobody can pick keys that land in a victim's buckets
+        SecureRandom random = new SecureRandom();
+        this.seed1 = random.nextLong();
+        this.seed2 = random.nextLong() | 1;
+    }
+
+    // Returns 0 when the request may proceed, otherwise how many milliseconds until it would
+    public long tryAcquire(String key) {
+        long h1 = hash(key, seed1);
+        long h2 = hash(key, seed2);
+        long now = elapsedMillis();
+        
+        boolean acquired = false;
+        long minWait = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + (int) Long.remainderUnsigned(h1 + row * h2, width);
+            long wait = tryAcquire(index, now);
+            if (wait == 0) {
+                acquired = true;
+            } else {
+                minWait = Math.min(minWait, wait);
+            }
+        }
+        return acquired ? 0 : minWait;
+    }
+
+    private long tryAcquire(int index, long now) {
+        while (true) {
+            long state = buckets.get(index);
+            long tokens;
+            if (state == 0) {
+                // Never touched: a full bucket
+                tokens = capacityMilli;
+            } else {
+                long last = state >>> TOKEN_BITS;
+                long elapsed = Math.max(0, now - last);
+                tokens = Math.min(capacityMilli, (state & TOKEN_MASK) + elapsed * refillPerMs / RATE_SCALE);
+            }
+            
+            if (tokens < MILLI) {
+                return Math.max(1, (MILLI - tokens) * RATE_SCALE / refillPerMs);
+            }
+            if (buckets.compareAndSet(index, state, (now << TOKEN_BITS) | (tokens - MILLI))) {
+                return 0;
+            }
+        }
+    }
+
+    private long elapsedMillis() {
+        // Starts at 1 so a used bucket is never 0, which marks an untouched one
+        return (System.nanoTime() - startNanos) / 1_000_000 + 1;
+    }
+
+    private static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        // murmur3 finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,270 @@
+package com.pgfinder.service;
+
+import com.pgfinder.model.OutboxEmail;
+import com.pgfinder.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Delivers the email outbox. Each batch is claimed with a lease, then sent through one
+// JavaMailSender.send(MimeMessage...) call, which opens a single SMTP connection for the whole batch.
+// Failed messages are retried with exponential backoff and dead-lettered (status DEAD) after
+// max-attempts or when the server rejects the recipient outright. Sent and dead rows have their body
+// blanked, since it holds a usable verification or reset link; a dead-lettered user asks for a new one.
+@Service
+public class EmailOutboxWorker {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    @Autowired
+    private JavaMailSender javaMailSender;
+
+    @Autowired
+    @Qualifier("emailOutboxExecutor")
+    private ThreadPoolTaskExecutor emailOutboxExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    // Upper bound on batches per run, so a large backlog doesn't keep the thread from noticing shutdown
+    @Value("${app.email.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // How long a claimed batch stays with this worker before another one may take it over
+    @Value("${app.email.outbox.lease:PT2M}")
+    private Duration lease;
+
+    @Value("${app.email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff.initial:PT30S}")
+    private Duration initialBackoff;
+
+    @Value("${app.email.outbox.backoff.max:PT1H}")
+    private Duration maxBackoff;
+
+    @Value("${app.email.outbox.retention:P7D}")
+    private Duration retention;
+
+    private final AtomicBoolean runQueued = new AtomicBoolean();
+
+    private Timer batchTimer;
+
+    // Delivery result -> counter
+    private Map<String, Counter> deliveryCounters;
+
+    @PostConstruct
+    public void init() {
+        batchTimer = Timer.builder("pgfinder.email.outbox.batch")
+                .description("Time to send one outbox batch over a single SMTP connection")
+                .register(meterRegistry);
+        
+        deliveryCounters = new HashMap<>();
+        for (String result : List.of("sent", "retry", "dead")) {
+            deliveryCounters.put(result, Counter.builder("pgfinder.email.outbox.deliveries")
+                    .description("Outbox delivery attempts by result")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+    }
+
+    // Asks for a delivery run soon; several calls before the run starts collapse into one
+    public void wakeUp() {
+        if (runQueued.compareAndSet(false, true)) {
+            emailOutboxExecutor.execute(() -> {
+                runQueued.set(false);
+                deliverPending();
+            });
+        }
+    }
+
+    // Catches rows whose wake-up was lost (restart, full executor) and rows due for a retry
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-interval:PT15S}")
+    public void poll() {
+        wakeUp();
+    }
+
+    public void deliverPending() {
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (deliverBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Claimed rows are picked up again when their lease runs out
+            System.err.println("Email outbox run failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (OutboxEmail.Status status : OutboxEmail.Status.values()) {
+            counts.put(status.name(), outboxEmailRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.cleanup-interval:PT1H}")
+    public void removeFinishedEmails() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        List<Long> finishedIds;
+        int removed = 0;
+        while (!(finishedIds = outboxEmailRepository.findFinishedBefore(cutoff, PageRequest.of(0, 500))).isEmpty()) {
+            removed += outboxEmailRepository.deleteByIdIn(finishedIds);
+        }
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " sent or dead-lettered emails from the outbox");
+        }
+    }
+
+    // Returns how many rows were claimed
+    private int deliverBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxEmailRepository.findClaimableIds(now, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        
+        String claimToken = UUID.randomUUID().toString();
+        outboxEmailRepository.claim(ids, claimToken, now.plus(lease), now);
+        List<OutboxEmail> emails = outboxEmailRepository.findByClaimToken(claimToken);
+        if (emails.isEmpty()) {
+            // Another worker got there first
+            return ids.size();
+        }
+        
+        List<OutboxEmail> prepared = new ArrayList<>(emails.size());
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        for (OutboxEmail email : emails) {
+            try {
+                messages.add(toMimeMessage(email));
+                prepared.add(email);
+            } catch (MessagingException | RuntimeException e) {
+                // A message that can't even be built won't get better on retry
+                fail(email, claimToken, e, true);
+            }
+        }
+        
+        // Keyed by MimeMessage, which has identity equality, so duplicate emails stay apart
+        Map<Object, Exception> failures = Map.of();
+        long started = System.nanoTime();
+        try {
+            if (!messages.isEmpty()) {
+                javaMailSender.send(messages.toArray(new MimeMessage[0]));
+            }
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+        } catch (MailException e) {
+            // Authentication and similar errors before anything was sent: the whole batch failed
+            Map<Object, Exception> all = new LinkedHashMap<>();
+            for (MimeMessage message : messages) {
+                all.put(message, e);
+            }
+            failures = all;
+        }
+        batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        
+        List<Long> sentIds = new ArrayList<>(prepared.size());
+        for (int i = 0; i < prepared.size(); i++) {
+            Exception failure = failures.get(messages.get(i));
+            if (failure == null) {
+                sentIds.add(prepared.get(i).getId());
+            } else {
+                fail(prepared.get(i), claimToken, failure, isPermanent(failure));
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            outboxEmailRepository.markSent(sentIds, claimToken, LocalDateTime.now());
+            record("sent", sentIds.size());
+        }
+        return ids.size();
+    }
+
+    private MimeMessage toMimeMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody());
+        return message;
+    }
+
+    private void fail(OutboxEmail email, String claimToken, Exception error, boolean permanent) {
+        int attempts = email.getAttempts() + 1;
+        boolean dead = permanent || attempts >= maxAttempts;
+        if (dead) {
+            outboxEmailRepository.markDead(email.getId(), claimToken, LocalDateTime.now(), describe(error));
+        } else {
+            outboxEmailRepository.markRetry(email.getId(), claimToken,
+                    LocalDateTime.now().plus(backoff(attempts)), describe(error));
+        }
+        record(dead ? "dead" : "retry", 1);
+        if (dead) {
+            System.err.println("Giving up on email " + email.getId() + " to " + email.getRecipient() + " after "
+                    + attempts + " attempt(s): " + describe(error));
+        }
+    }
+
+    // initial * 2^(attempts - 1), capped at max, with up to 20% jitter so retries from one outage spread out
+    private Duration backoff(int attempts) {
+        long delayMs = Math.min(initialBackoff.toMillis() << Math.min(attempts - 1, 20), maxBackoff.toMillis());
+        return Duration.ofMillis(delayMs + ThreadLocalRandom.current().nextLong(delayMs / 5 + 1));
+    }
+
+    // The server refused the address itself; retrying would only get the same answer
+    private static boolean isPermanent(Exception error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SendFailedException sendFailed) {
+                return sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(Exception error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private void record(String result, int count) {
+        deliveryCounters.get(result).increment(count);
+    }
+}
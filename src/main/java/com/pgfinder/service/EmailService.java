@@ -1,29 +1,28 @@
 package com.pgfinder.service;
 
+import com.pgfinder.model.OutboxEmail;
+import com.pgfinder.repository.OutboxEmailRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+// Builds the app's emails and queues them in the outbox. Queueing joins the caller's transaction, so
+// the email goes out only if that transaction commits; EmailOutboxWorker does the actual SMTP work.
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender javaMailSender;
+    private OutboxEmailRepository outboxEmailRepository;
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    @Autowired
+    private EmailOutboxWorker emailOutboxWorker;
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
-    public void sendVerificationEmail(String toEmail, String verificationToken, String userName) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(toEmail);
-        message.setSubject("Email Verification - PG Finder App");
-        
+    public void queueVerificationEmail(String toEmail, String verificationToken, String userName) {
         String verificationLink = frontendUrl + "/verify-email?token=" + verificationToken;
         
         String emailBody = String.format(
@@ -36,16 +35,10 @@ public class EmailService {
             userName, verificationLink
         );
         
-        message.setText(emailBody);
-        javaMailSender.send(message);
+        enqueue(toEmail, "Email Verification - PG Finder App", emailBody);
     }
 
-    public void sendPasswordResetEmail(String toEmail, String resetToken, String userName) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(toEmail);
-        message.setSubject("Password Reset Request - PG Finder App");
-        
+    public void queuePasswordResetEmail(String toEmail, String resetToken, String userName) {
         String resetLink = frontendUrl + "/reset-password?token=" + resetToken;
         
         String emailBody = String.format(
@@ -58,7 +51,22 @@ public class EmailService {
             userName, resetLink
         );
         
-        message.setText(emailBody);
-        javaMailSender.send(message);
+        enqueue(toEmail, "Password Reset Request - PG Finder App", emailBody);
+    }
+
+    private void enqueue(String toEmail, String subject, String body) {
+        outboxEmailRepository.save(new OutboxEmail(toEmail, subject, body));
+        
+        // Deliver right after commit rather than on the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emailOutboxWorker.wakeUp();
+                }
+            });
+        } else {
+            emailOutboxWorker.wakeUp();
+        }
     }
 }
@@ -0,0 +1,66 @@
+package com.pgfinder.service;
+
+import com.pgfinder.model.PG;
+import com.pgfinder.repository.PGRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Favorites work on the user_favorites join table directly; loading User.favoritePGs to add one PG
+// or check membership would pull every favorited PG. PG.favoriteCount moves in the same transaction,
+// and only when a row was really inserted or deleted, so repeated clicks don't skew it.
+@Service
+@Transactional
+public class FavoriteService {
+
+    // Enough for any listing page; keeps the IN list bounded
+    public static final int MAX_LOOKUP_IDS = 100;
+
+    @Autowired
+    private PGRepository pgRepository;
+
+    // Returns false when the PG was already a favorite
+    public boolean addFavorite(Long userId, Long pgId) {
+        PG pg = pgRepository.findById(pgId)
+                .filter(p -> Boolean.TRUE.equals(p.getIsActive()))
+                .orElseThrow(() -> new IllegalArgumentException("PG not found"));
+        
+        if (pgRepository.addFavorite(userId, pg.getId()) == 0) {
+            return false;
+        }
+        pgRepository.adjustFavoriteCount(pg.getId(), 1);
+        return true;
+    }
+
+    // Returns false when the PG wasn't a favorite
+    public boolean removeFavorite(Long userId, Long pgId) {
+        if (pgRepository.removeFavorite(userId, pgId) == 0) {
+            return false;
+        }
+        pgRepository.adjustFavoriteCount(pgId, -1);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PG> getFavorites(Long userId, Pageable pageable) {
+        return pgRepository.findFavoritePGs(userId, pageable);
+    }
+
+    // Which of the given PGs the user has favorited, in one index lookup on (user_id, pg_id)
+    @Transactional(readOnly = true)
+    public Set<Long> findFavorited(Long userId, Collection<Long> pgIds) {
+        if (pgIds.isEmpty()) {
+            return Set.of();
+        }
+        if (pgIds.size() > MAX_LOOKUP_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_LOOKUP_IDS + " PG ids per lookup");
+        }
+        return new HashSet<>(pgRepository.findFavoritedPgIds(userId, pgIds));
+    }
+}
@@ -0,0 +1,171 @@
+package com.pgfinder.service;
+
+import com.pgfinder.dto.ImageGcReport;
+import com.pgfinder.storage.ImageStorage;
+import com.pgfinder.storage.StorageObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Reclaims storage space from image files that no PGImage row references any more: failed uploads,
+// swallowed delete errors, and galleries of PGs that have been deactivated for a long time
+@Service
+public class ImageGarbageCollector {
+
+    private static final String IMAGE_FOLDER = "pg-images";
+
+    @Value("${app.images.gc.enabled:true}")
+    private boolean enabled;
+
+    // Files younger than this are left alone; their rows may still be in flight
+    @Value("${app.images.gc.grace-period:PT24H}")
+    private Duration gracePeriod;
+
+    @Value("${app.images.gc.inactive-pg-days:90}")
+    private int inactivePgDays;
+
+    @Value("${app.images.gc.batch-size:500}")
+    private int batchSize;
+
+    // Caps file deletions so the sweep doesn't compete with image serving for disk I/O
+    @Value("${app.images.gc.max-deletes-per-second:50}")
+    private int maxDeletesPerSecond;
+
+    @Autowired
+    private PGImageService pgImageService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private Counter bytesReclaimed;
+    private Counter orphansDeleted;
+
+    @PostConstruct
+    public void init() {
+        bytesReclaimed = Counter.builder("pgfinder.images.gc.reclaimed.bytes")
+                .baseUnit("bytes")
+                .description("Disk space reclaimed from orphaned image files")
+                .register(meterRegistry);
+        orphansDeleted = Counter.builder("pgfinder.images.gc.deleted.files")
+                .description("Orphaned image files deleted")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.gc.interval:PT6H}", initialDelayString = "${app.images.gc.initial-delay:PT10M}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    public ImageGcReport sweep() {
+        ImageGcReport report = new ImageGcReport();
+        if (!running.compareAndSet(false, true)) {
+            // A sweep is already in progress
+            return report;
+        }
+        
+        long startTime = System.currentTimeMillis();
+        try {
+            purgeInactivePGImages(report);
+            deleteOrphanedFiles(report);
+        } catch (IOException e) {
+            System.err.println("Image garbage collection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            report.setDurationMs(System.currentTimeMillis() - startTime);
+            running.set(false);
+        }
+        
+        System.out.println("Image GC: scanned " + report.getFilesScanned() + " files, deleted "
+                + report.getOrphansDeleted() + " orphans, reclaimed " + report.getBytesReclaimed()
+                + " bytes, purged images of " + report.getInactivePGsPurged() + " inactive PGs in "
+                + report.getDurationMs() + "ms");
+        return report;
+    }
+
+    // Drop image rows of long-inactive PGs; the file walk below then reclaims whatever became unreferenced
+    private void purgeInactivePGImages(ImageGcReport report) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(inactivePgDays);
+        List<Long> pgIds;
+        while (!(pgIds = pgImageService.findInactivePgIdsWithImages(cutoff, batchSize)).isEmpty()) {
+            report.setImageRecordsPurged(report.getImageRecordsPurged() + pgImageService.purgeImagesOfPGs(pgIds));
+            report.setInactivePGsPurged(report.getInactivePGsPurged() + pgIds.size());
+        }
+    }
+
+    private void deleteOrphanedFiles(ImageGcReport report) throws IOException, InterruptedException {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        long nanosPerDelete = maxDeletesPerSecond > 0 ? 1_000_000_000L / maxDeletesPerSecond : 0;
+        long nextDeleteAt = System.nanoTime();
+        
+        // The listing streams lazily, so memory stays bounded by one batch however many objects there are
+        try (Stream<StorageObject> objects = imageStorage.list(IMAGE_FOLDER)) {
+            Iterator<StorageObject> iterator = objects.iterator();
+            List<StorageObject> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    report.setFilesScanned(report.getFilesScanned() + batch.size());
+                    
+                    // WebP/AVIF variants live as long as the original they were made from
+                    List<String> storageKeys = new ArrayList<>(batch.size());
+                    for (StorageObject object : batch) {
+                        storageKeys.add(ImageVariantService.baseKeyOf(object.getKey()));
+                    }
+                    Set<String> referenced = pgImageService.findReferencedStorageKeys(storageKeys);
+                    
+                    for (StorageObject object : batch) {
+                        if (referenced.contains(ImageVariantService.baseKeyOf(object.getKey()))
+                                || object.getLastModified().isAfter(cutoff)) {
+                            continue;
+                        }
+                        if (nanosPerDelete > 0) {
+                            long waitNanos = nextDeleteAt - System.nanoTime();
+                            if (waitNanos > 0) {
+                                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                            }
+                            nextDeleteAt = Math.max(nextDeleteAt, System.nanoTime()) + nanosPerDelete;
+                        }
+                        deleteOrphan(object, cutoff, report);
+                    }
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void deleteOrphan(StorageObject object, Instant cutoff, ImageGcReport report) {
+        try {
+            // Re-checked by the store in case a deduplicated upload reused the file since it was listed
+            if (imageStorage.deleteIfNotModifiedSince(object.getKey(), cutoff)) {
+                report.setOrphansDeleted(report.getOrphansDeleted() + 1);
+                report.setBytesReclaimed(report.getBytesReclaimed() + object.getSize());
+                orphansDeleted.increment();
+                bytesReclaimed.increment(object.getSize());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete orphaned image " + object.getKey() + ": " + e.getMessage());
+        }
+    }
+}
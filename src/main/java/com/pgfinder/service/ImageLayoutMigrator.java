@@ -0,0 +1,120 @@
+package com.pgfinder.service;
+
+import com.pgfinder.dto.ImageLayoutMigrationReport;
+import com.pgfinder.storage.ImageStorage;
+import com.pgfinder.storage.LocalImageStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Moves images stored in the old flat pg-images/ directory into the sharded layout while the app keeps
+// serving. Each batch links the files under their new keys, rewrites the rows in one transaction, and
+// only then removes the flat files; LocalImageStorage resolves either key in the meantime.
+@Service
+public class ImageLayoutMigrator {
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private PGImageService pgImageService;
+
+    @Value("${app.images.layout-migration.batch-size:200}")
+    private int batchSize;
+
+    // Breathing room between batches so the migration doesn't starve uploads and image requests
+    @Value("${app.images.layout-migration.pause:PT0.2S}")
+    private Duration pause;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong filesMoved = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    // Returns false when a migration is already running
+    public boolean start() {
+        if (!(imageStorage instanceof LocalImageStorage)) {
+            throw new IllegalStateException("Only the local image store uses the sharded layout");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        filesMoved.set(0);
+        rowsUpdated.set(0);
+        failures.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        
+        Thread worker = new Thread(this::migrate, "image-layout-migration");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public ImageLayoutMigrationReport getReport() {
+        return new ImageLayoutMigrationReport(running.get(), filesMoved.get(), rowsUpdated.get(), failures.get(),
+                startedAt, finishedAt);
+    }
+
+    private void migrate() {
+        LocalImageStorage localStorage = (LocalImageStorage) imageStorage;
+        try {
+            // Keyset pagination: keys that failed to move stay flat and aren't picked up again
+            String after = "";
+            List<String> flatKeys;
+            while (!(flatKeys = pgImageService.findFlatStorageKeys(after, batchSize)).isEmpty()) {
+                after = flatKeys.get(flatKeys.size() - 1);
+                
+                Map<String, String> relocations = new LinkedHashMap<>();
+                for (String oldKey : flatKeys) {
+                    String newKey = localStorage.alternateKey(oldKey);
+                    try {
+                        localStorage.relocate(oldKey, newKey);
+                        relocations.put(oldKey, newKey);
+                    } catch (IOException | IllegalArgumentException e) {
+                        failures.incrementAndGet();
+                        System.err.println("Failed to move image " + oldKey + ": " + e.getMessage());
+                    }
+                }
+                
+                rowsUpdated.addAndGet(pgImageService.relocateStoredImages(relocations));
+                
+                // Rows no longer reference the flat files; requests for old URLs fall through to the new location
+                for (String oldKey : relocations.keySet()) {
+                    try {
+                        localStorage.deleteIfNotModifiedSince(oldKey, Instant.MAX);
+                        filesMoved.incrementAndGet();
+                    } catch (IOException e) {
+                        // Left for the orphan sweeper
+                        System.err.println("Failed to remove flat image " + oldKey + ": " + e.getMessage());
+                    }
+                }
+                
+                Thread.sleep(pause.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Image layout migration stopped: " + e.getMessage());
+        } finally {
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+        }
+        
+        System.out.println("Image layout migration: moved " + filesMoved.get() + " files, updated "
+                + rowsUpdated.get() + " rows, " + failures.get() + " failures");
+    }
+}
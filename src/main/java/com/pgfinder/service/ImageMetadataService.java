@@ -0,0 +1,112 @@
+package com.pgfinder.service;
+
+import com.pgfinder.dto.ImageMetadata;
+import com.pgfinder.util.BlurHash;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+@Service
+public class ImageMetadataService {
+
+    // Placeholders are computed from a subsampled copy, so large photos are never fully decoded
+    private static final int SAMPLE_SIZE = 64;
+    private static final int BLURHASH_COMPONENTS_X = 4;
+    private static final int BLURHASH_COMPONENTS_Y = 3;
+
+    public ImageMetadata extract(InputStream inputStream, long byteSize) {
+        ImageMetadata metadata = new ImageMetadata();
+        metadata.setByteSize(byteSize);
+
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageStream != null ? ImageIO.getImageReaders(imageStream) : null;
+            if (readers == null || !readers.hasNext()) {
+                // No decoder for this format (e.g. WebP); keep the byte size only
+                return metadata;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                metadata.setWidth(width);
+                metadata.setHeight(height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / SAMPLE_SIZE);
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage sample = reader.read(0, param);
+
+                int sampleWidth = sample.getWidth();
+                int sampleHeight = sample.getHeight();
+                int[] pixels = flattenOnWhite(sample.getRGB(0, 0, sampleWidth, sampleHeight, null, 0, sampleWidth));
+
+                metadata.setDominantColor(dominantColor(pixels));
+                metadata.setBlurHash(BlurHash.encode(pixels, sampleWidth, sampleHeight,
+                        BLURHASH_COMPONENTS_X, BLURHASH_COMPONENTS_Y));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Metadata is best effort; the upload itself already succeeded
+            System.err.println("Failed to extract image metadata: " + e.getMessage());
+        }
+
+        return metadata;
+    }
+
+    // Blend transparent pixels onto white so placeholders match how the image is displayed
+    private int[] flattenOnWhite(int[] argbPixels) {
+        int[] rgbPixels = new int[argbPixels.length];
+        for (int i = 0; i < argbPixels.length; i++) {
+            int argb = argbPixels[i];
+            int alpha = (argb >>> 24) & 0xFF;
+            int r = blend((argb >> 16) & 0xFF, alpha);
+            int g = blend((argb >> 8) & 0xFF, alpha);
+            int b = blend(argb & 0xFF, alpha);
+            rgbPixels[i] = (r << 16) | (g << 8) | b;
+        }
+        return rgbPixels;
+    }
+
+    private int blend(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    // Most common color after quantizing to 4 bits per channel, averaged within that bucket
+    private String dominantColor(int[] pixels) {
+        int[] counts = new int[4096];
+        long[] sumR = new long[4096];
+        long[] sumG = new long[4096];
+        long[] sumB = new long[4096];
+
+        int best = 0;
+        for (int rgb : pixels) {
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int bucket = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+            counts[bucket]++;
+            sumR[bucket] += r;
+            sumG[bucket] += g;
+            sumB[bucket] += b;
+            if (counts[bucket] > counts[best]) {
+                best = bucket;
+            }
+        }
+
+        if (counts[best] == 0) {
+            return null;
+        }
+        return String.format("#%02x%02x%02x",
+                sumR[best] / counts[best], sumG[best] / counts[best], sumB[best] / counts[best]);
+    }
+}
@@ -0,0 +1,279 @@
+package com.pgfinder.service;
+
+import com.pgfinder.storage.ImageStorage;
+import com.pgfinder.storage.LocalImageStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class ImageServingService {
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=86400";
+
+    // Content-addressed files are named <sha256>.<ext>, so their URL changes whenever the bytes do
+    private static final Pattern CONTENT_HASH_NAME = Pattern.compile("^([0-9a-f]{64})\\.[a-z0-9]+$");
+
+    // Keys of uploaded originals: a folder, optionally two shard levels, then a content hash or (for files
+    // from before content addressing) a UUID with an image extension. Variants, in-progress uploads and
+    // temp files don't match and are never served directly.
+    private static final Pattern STORED_ORIGINAL_KEY = Pattern.compile(
+            "^[a-z0-9-]+/(?:[0-9a-f]{2}/[0-9a-f]{2}/)?[0-9a-fA-F-]+\\.(?i:jpe?g|png|gif|webp)$");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    // Request attributes understood by Tomcat's NIO connector for sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Smaller files are cheaper to write directly than to hand over to the poller
+    @Value("${app.images.sendfile-threshold:49152}")
+    private long sendfileThreshold;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    private Counter bytesServed;
+
+    // Outcome -> request timer, registered up front since every image request records one
+    private Map<String, Timer> serveTimers;
+
+    @PostConstruct
+    public void init() {
+        bytesServed = Counter.builder("pgfinder.images.served.bytes")
+                .baseUnit("bytes")
+                .description("Image bytes written to clients")
+                .register(meterRegistry);
+        
+        serveTimers = new HashMap<>();
+        for (String outcome : List.of("ok", "not_found", "redirect", "not_modified", "range_not_satisfiable", "partial")) {
+            serveTimers.put(outcome, Timer.builder("pgfinder.images.serve")
+                    .description("Time spent handling image requests")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void serve(String relativePath, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long startTime = System.nanoTime();
+        String outcome = "ok";
+        try {
+            if (relativePath == null || !STORED_ORIGINAL_KEY.matcher(relativePath).matches()) {
+                outcome = "not_found";
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+
+            if (!(imageStorage instanceof LocalImageStorage)) {
+                // Images live in the object store; old links to this endpoint are sent there
+                outcome = "redirect";
+                response.setHeader(HttpHeaders.LOCATION, imageStorage.publicUrl(relativePath));
+                response.setStatus(HttpServletResponse.SC_MOVED_PERMANENTLY);
+                return;
+            }
+
+            Path file = resolve(relativePath);
+            if (file == null || !Files.isRegularFile(file)) {
+                outcome = "not_found";
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+
+            String filename = file.getFileName().toString();
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            Matcher hashName = CONTENT_HASH_NAME.matcher(filename);
+            boolean contentVersioned = hashName.matches();
+            String contentType = MediaTypeFactory.getMediaType(filename)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+            // Strong ETag: the content hash when we have one, otherwise size + mtime of the stored file
+            String etag = contentVersioned
+                    ? "\"" + hashName.group(1) + "\""
+                    : "\"" + Long.toHexString(Files.size(file)) + "-" + Long.toHexString(lastModified) + "\"";
+            boolean notModified = matchesEtag(ifNoneMatch, etag);
+
+            if (imageVariantService.isNegotiable(filename)) {
+                // Caches must keep WebP/AVIF and original responses apart
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                String accept = request.getHeader(HttpHeaders.ACCEPT);
+                // A revalidation of any copy this client could hold is answered before negotiate,
+                // which may wait on an encode
+                for (String format : imageVariantService.acceptedFormats(accept)) {
+                    String variantEtag = "\"" + hashName.group(1) + "-" + format + "\"";
+                    if (!notModified && matchesEtag(ifNoneMatch, variantEtag)) {
+                        notModified = true;
+                        etag = variantEtag;
+                    }
+                }
+                if (!notModified) {
+                    ImageVariantService.Variant variant = imageVariantService.negotiate(file, accept);
+                    if (variant != null) {
+                        file = variant.getFile();
+                        contentType = variant.getContentType();
+                        etag = "\"" + hashName.group(1) + "-" + variant.getFormat() + "\"";
+                    }
+                }
+            }
+
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, contentVersioned ? IMMUTABLE_CACHE_CONTROL : DEFAULT_CACHE_CONTROL);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+            if (notModified) {
+                outcome = "not_modified";
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            long length = Files.size(file);
+            response.setContentType(contentType);
+
+            long start = 0;
+            long end = length - 1;
+            String range = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (range != null && SINGLE_RANGE.matcher(range.trim()).matches()
+                    && (ifRange == null || ifRange.equals(etag))) {
+                long[] bounds = parseRange(range, length);
+                if (bounds == null) {
+                    outcome = "range_not_satisfiable";
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = bounds[0];
+                end = bounds[1];
+                outcome = "partial";
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+
+            long count = end - start + 1;
+            response.setContentLengthLong(count);
+            if ("HEAD".equals(request.getMethod())) {
+                return;
+            }
+
+            transfer(file, start, count, request, response);
+            bytesServed.increment(count);
+        } finally {
+            serveTimers.get(outcome).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void transfer(Path file, long start, long count, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Hand the file to Tomcat's poller: the kernel copies it to the socket and this thread is released
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private Path resolve(String relativePath) {
+        if (relativePath == null || relativePath.isEmpty()) {
+            return null;
+        }
+        try {
+            return ((LocalImageStorage) imageStorage).resolveExisting(relativePath);
+        } catch (IllegalArgumentException e) {
+            // Escapes the upload directory
+            return null;
+        }
+    }
+
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns inclusive {start, end}, or null when the range can't be satisfied. Multi-range requests
+    // don't match SINGLE_RANGE and are answered with the full file instead.
+    private long[] parseRange(String range, long length) {
+        Matcher matcher = SINGLE_RANGE.matcher(range.trim());
+        if (!matcher.matches() || length == 0) {
+            return null;
+        }
+
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffixLength), length - 1};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,105 +1,293 @@
 package com.pgfinder.service;
 
+import com.pgfinder.dto.StoredImage;
+import com.pgfinder.repository.PGImageRepository;
+import com.pgfinder.storage.ImageStorage;
+import com.pgfinder.storage.PresignedUpload;
+import com.pgfinder.storage.StorageObject;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Service
 public class ImageUploadService {
 
+    // Scratch space for hashing uploads before they are handed to the storage backend
     @Value("${app.upload.dir:uploads/}")
     private String uploadDir;
     
-    @Value("${server.port:8080}")
-    private String serverPort;
-    
-    @Value("${server.servlet.context-path:/api}")
-    private String contextPath;
+    // Applies to every upload path; spring.servlet.multipart.max-file-size must be at least as large
+    @Value("${app.images.upload.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private PGImageRepository pgImageRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Registered once per result, so recording an upload only looks up a field
+    private Timer storedTimer;
+    private Timer deduplicatedTimer;
+    private DistributionSummary storedBytes;
+    private DistributionSummary deduplicatedBytes;
 
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
-    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+
+    // A file that was just reused by a deduplicated upload may not have its PGImage row committed yet
+    private static final Duration UNLINK_GRACE_PERIOD = Duration.ofMinutes(5);
+
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-f]{64}$");
 
     public String uploadImage(MultipartFile file, String subfolder) throws IOException {
+        return storeImage(file, subfolder).getUrl();
+    }
+
+    public StoredImage storeImage(MultipartFile file, String subfolder) throws IOException {
         // Validate file
         validateImageFile(file);
         
+        try (InputStream inputStream = file.getInputStream()) {
+            return storeContent(inputStream, file.getOriginalFilename(), subfolder);
+        }
+    }
+
+    private StoredImage storeContent(InputStream inputStream, String originalFilename, String subfolder) throws IOException {
         // Create directory if it doesn't exist
         Path uploadPath = Paths.get(uploadDir, subfolder);
         if (!Files.exists(uploadPath)) {
             Files.createDirectories(uploadPath);
         }
         
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = FilenameUtils.getExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + "." + extension;
+        // Hash while streaming into a temp file next to the local store so handing it over is a rename
+        long started = System.nanoTime();
+        Path tempFile = Files.createTempFile(uploadPath, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = newSha256Digest();
+            long size;
+            try (DigestInputStream digestStream = new DigestInputStream(inputStream, digest)) {
+                size = Files.copy(digestStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            String extension = FilenameUtils.getExtension(originalFilename).toLowerCase();
+            String storageKey = imageStorage.keyFor(subfolder, contentHash + "." + extension);
+        
+            // Identical content is already stored when nothing had to be written
+            boolean deduplicated = !imageStorage.storeIfAbsent(storageKey, tempFile, contentTypeOf(storageKey));
+            recordUpload(size, deduplicated, started);
+            
+            return new StoredImage(imageStorage.publicUrl(storageKey), storageKey, contentHash, size, deduplicated);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Stores a file that was already assembled on local disk, e.g. by a resumable upload. With the local
+    // backend the file is renamed into place, so it must live under app.upload.dir; otherwise it is left
+    // for the caller to delete.
+    public StoredImage storeFile(Path file, String originalFilename, String contentType, String subfolder) throws IOException {
+        long started = System.nanoTime();
+        long size = Files.size(file);
+        validateImage(originalFilename, contentType, size);
+        
+        MessageDigest digest = newSha256Digest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        String extension = FilenameUtils.getExtension(originalFilename).toLowerCase();
+        String storageKey = imageStorage.keyFor(subfolder, contentHash + "." + extension);
+        boolean deduplicated = !imageStorage.storeIfAbsent(storageKey, file, contentTypeOf(storageKey));
+        recordUpload(size, deduplicated, started);
         
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        return new StoredImage(imageStorage.publicUrl(storageKey), storageKey, contentHash, size, deduplicated);
+    }
+
+    // Presigns a direct-to-store upload for content the client has already hashed.
+    // When identical content is stored already the result has no upload URL and the client can skip the upload.
+    public PresignedUpload presignUpload(String subfolder, String filename, String contentType, long size,
+                                         String sha256, Duration ttl) throws IOException {
+        validateImage(filename, contentType, size);
+        String extension = FilenameUtils.getExtension(filename).toLowerCase();
+        if (sha256 == null || !SHA256_HEX.matcher(sha256.toLowerCase()).matches()) {
+            throw new IllegalArgumentException("sha256 must be the hex SHA-256 of the file");
+        }
         
-        // Return public URL
-        return generateImageUrl(subfolder, uniqueFilename);
+        String storageKey = imageStorage.keyFor(subfolder, sha256.toLowerCase() + "." + extension);
+        if (imageStorage.stat(storageKey) != null) {
+            return new PresignedUpload(storageKey, null, null, Map.of(), null);
+        }
+        return imageStorage.presignUpload(storageKey, contentType, size, sha256.toLowerCase(), ttl);
+    }
+
+    // Checks that a client finished a presigned upload to storageKey
+    public StoredImage verifyDirectUpload(String subfolder, String storageKey) throws IOException {
+        String filename = storageKey != null ? FilenameUtils.getName(storageKey) : "";
+        String contentHash = FilenameUtils.getBaseName(filename);
+        if (!SHA256_HEX.matcher(contentHash).matches()
+                || !ALLOWED_EXTENSIONS.contains(FilenameUtils.getExtension(filename))
+                || !storageKey.equals(imageStorage.keyFor(subfolder, filename))) {
+            throw new IllegalArgumentException("Invalid storage key");
+        }
+        
+        StorageObject object = imageStorage.stat(storageKey);
+        if (object == null) {
+            throw new IllegalArgumentException("Upload not found: " + storageKey);
+        }
+        
+        boolean deduplicated = pgImageRepository.countByStorageKey(storageKey) > 0;
+        return new StoredImage(imageStorage.publicUrl(storageKey), storageKey, contentHash, object.getSize(), deduplicated);
+    }
+
+    public InputStream openStoredImage(String storageKey) throws IOException {
+        return imageStorage.open(storageKey);
     }
 
     public void deleteImage(String imageUrl) {
+        String relativePath = extractRelativePathFromUrl(imageUrl);
+        if (relativePath.isEmpty()) {
+            return;
+        }
+        
+        // Stored files are shared by every PGImage with the same content; only the last reference unlinks
+        if (pgImageRepository.countByStorageKey(relativePath) > 0) {
+            return;
+        }
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Don't lose the file if the surrounding delete rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unlinkFile(relativePath);
+                }
+            });
+        } else {
+            unlinkFile(relativePath);
+        }
+    }
+
+    private void unlinkFile(String relativePath) {
         try {
-            // Extract relative path from URL
-            String relativePath = extractRelativePathFromUrl(imageUrl);
-            Path filePath = Paths.get(uploadDir, relativePath);
-            
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            // Files recently reused by a deduplicated upload are kept; their row may still be in flight
+            if (imageStorage.deleteIfNotModifiedSince(relativePath, Instant.now().minus(UNLINK_GRACE_PERIOD))) {
+                // Encoded copies served to WebP/AVIF clients go with the original
+                for (String variantKey : ImageVariantService.variantKeysOf(relativePath)) {
+                    imageStorage.deleteIfNotModifiedSince(variantKey, Instant.MAX);
+                }
             }
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             // Log error but don't throw exception
             System.err.println("Failed to delete image: " + e.getMessage());
         }
     }
 
-    private void validateImageFile(MultipartFile file) {
-        if (file.isEmpty()) {
+    private String contentTypeOf(String storageKey) {
+        return MediaTypeFactory.getMediaType(storageKey).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    @PostConstruct
+    public void init() {
+        storedTimer = uploadTimer("stored");
+        deduplicatedTimer = uploadTimer("deduplicated");
+        storedBytes = uploadBytes("stored");
+        deduplicatedBytes = uploadBytes("deduplicated");
+    }
+
+    private Timer uploadTimer(String result) {
+        return Timer.builder("pgfinder.images.upload")
+                .description("Time to hash and store an uploaded image")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary uploadBytes(String result) {
+        return DistributionSummary.builder("pgfinder.images.upload.bytes")
+                .description("Size of uploaded images")
+                .baseUnit("bytes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // Covers hashing plus the hand-over to the storage backend, which for S3 is the network upload
+    private void recordUpload(long size, boolean deduplicated, long startedNanos) {
+        (deduplicated ? deduplicatedTimer : storedTimer).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        (deduplicated ? deduplicatedBytes : storedBytes).record(size);
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public void validateImageFile(MultipartFile file) {
+        validateImage(file.getOriginalFilename(), file.getContentType(), file.getSize());
+    }
+
+    public void validateImage(String filename, String contentType, long size) {
+        if (size <= 0) {
             throw new IllegalArgumentException("File is empty");
         }
         
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds maximum limit of 5MB");
+        if (size > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("File size exceeds maximum limit of " + maxFileSize.toMegabytes() + "MB");
         }
         
-        String extension = FilenameUtils.getExtension(file.getOriginalFilename()).toLowerCase();
+        String extension = FilenameUtils.getExtension(filename).toLowerCase();
         if (!ALLOWED_EXTENSIONS.contains(extension)) {
             throw new IllegalArgumentException("Invalid file format. Allowed formats: " + String.join(", ", ALLOWED_EXTENSIONS));
         }
         
         // Check MIME type as additional security
-        String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
             throw new IllegalArgumentException("File must be an image");
         }
     }
-    
-    private String generateImageUrl(String subfolder, String filename) {
-        return String.format("http://localhost:%s%s/images/%s/%s", 
-                           serverPort, contextPath, subfolder, filename);
+
+    public long getMaxFileSize() {
+        return maxFileSize.toBytes();
     }
     
-    private String extractRelativePathFromUrl(String imageUrl) {
-        // Extract the path after /images/
-        int imagesIndex = imageUrl.indexOf("/images/");
-        if (imagesIndex != -1) {
-            return imageUrl.substring(imagesIndex + 8); // 8 is length of "/images/"
-        }
-        return "";
+    public String extractRelativePathFromUrl(String imageUrl) {
+        return imageStorage.keyFromUrl(imageUrl);
     }
     
     public boolean isValidImageUrl(String imageUrl) {
@@ -109,8 +297,7 @@ public class ImageUploadService {
         
         try {
             String relativePath = extractRelativePathFromUrl(imageUrl);
-            Path filePath = Paths.get(uploadDir, relativePath);
-            return Files.exists(filePath);
+            return !relativePath.isEmpty() && imageStorage.stat(relativePath) != null;
         } catch (Exception e) {
             return false;
         }
@@ -0,0 +1,341 @@
+package com.pgfinder.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+// Smaller WebP/AVIF copies of stored JPEG and PNG images, picked by the request's Accept header.
+// A variant is encoded on its first request and saved next to the original as <hash>.<ext>.<format>;
+// concurrent requests for the same variant share one encode. When a variant turns out no smaller than
+// the original, an empty marker file is saved instead and the original keeps being served.
+@Service
+public class ImageVariantService {
+
+    public static final String WEBP = "webp";
+    public static final String AVIF = "avif";
+    private static final List<String> FORMATS = List.of(WEBP, AVIF);
+
+    // Only content-addressed originals: their variants never go stale, so they can be cached forever
+    private static final Pattern CONVERTIBLE_NAME = Pattern.compile("^[0-9a-f]{64}\\.(jpg|jpeg|png)$");
+
+    private static final MediaType IMAGE_WEBP = MediaType.parseMediaType("image/webp");
+    private static final MediaType IMAGE_AVIF = MediaType.parseMediaType("image/avif");
+
+    @Value("${app.images.variants.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.images.variants.webp-quality:0.8}")
+    private float webpQuality;
+
+    @Value("${app.images.variants.wait-timeout:PT2S}")
+    private Duration waitTimeout;
+
+    // e.g. "avifenc --speed 6 -q 60 {input} {output}"; empty disables AVIF
+    @Value("${app.images.variants.avif-command:}")
+    private String avifCommand;
+
+    @Value("${app.images.variants.avif-timeout:PT30S}")
+    private Duration avifTimeout;
+
+    @Autowired
+    @Qualifier("imageVariantExecutor")
+    private ThreadPoolTaskExecutor imageVariantExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Encodes in progress, keyed by variant path; later requests wait on the same future
+    private final Map<Path, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    // Format -> result -> counter
+    private Map<String, Map<String, Counter>> encodeCounters;
+
+    public static class Variant {
+        private final Path file;
+        private final String format;
+        private final String contentType;
+        
+        Variant(Path file, String format, String contentType) {
+            this.file = file;
+            this.format = format;
+            this.contentType = contentType;
+        }
+        
+        public Path getFile() {
+            return file;
+        }
+        
+        public String getFormat() {
+            return format;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        encodeCounters = new HashMap<>();
+        for (String format : FORMATS) {
+            Map<String, Counter> byResult = new HashMap<>();
+            for (String result : List.of("generated", "not_smaller", "failed")) {
+                byResult.put(result, Counter.builder("pgfinder.images.variants")
+                        .description("Image variants encoded")
+                        .tag("format", format)
+                        .tag("result", result)
+                        .register(meterRegistry));
+            }
+            encodeCounters.put(format, byResult);
+        }
+    }
+
+    // Whether responses for this file depend on the Accept header
+    public boolean isNegotiable(String filename) {
+        return enabled && CONVERTIBLE_NAME.matcher(filename).matches();
+    }
+
+    // The best variant of original the client accepts, or null to serve the original. Waits for an
+    // encode in progress up to the configured timeout; the encode carries on if the wait runs out.
+    public Variant negotiate(Path original, String accept) {
+        if (!isNegotiable(original.getFileName().toString())) {
+            return null;
+        }
+        
+        for (String format : acceptedFormats(accept)) {
+            Variant variant = variant(original, format, AVIF.equals(format) ? IMAGE_AVIF : IMAGE_WEBP);
+            if (variant != null) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    // Variant formats the client accepts that negotiate may pick, best first; works without touching disk
+    public List<String> acceptedFormats(String accept) {
+        List<MediaType> accepted = parseAccept(accept);
+        List<String> formats = new ArrayList<>(FORMATS.size());
+        if (avifEnabled() && accepts(accepted, IMAGE_AVIF)) {
+            formats.add(AVIF);
+        }
+        if (accepts(accepted, IMAGE_WEBP)) {
+            formats.add(WEBP);
+        }
+        return formats;
+    }
+
+    // Storage keys of the variants that may exist for an original
+    public static List<String> variantKeysOf(String storageKey) {
+        List<String> keys = new ArrayList<>(FORMATS.size());
+        for (String format : FORMATS) {
+            keys.add(storageKey + "." + format);
+        }
+        return keys;
+    }
+
+    // The original's storage key for a variant key, or the key itself when it isn't a variant
+    public static String baseKeyOf(String storageKey) {
+        for (String format : FORMATS) {
+            String suffix = "." + format;
+            if (storageKey.endsWith(suffix) && CONVERTIBLE_NAME.matcher(
+                    fileNameOf(storageKey.substring(0, storageKey.length() - suffix.length()))).matches()) {
+                return storageKey.substring(0, storageKey.length() - suffix.length());
+            }
+        }
+        return storageKey;
+    }
+
+    private Variant variant(Path original, String format, MediaType mediaType) {
+        Path variantFile = original.resolveSibling(original.getFileName() + "." + format);
+        try {
+            if (!Files.exists(variantFile)) {
+                if (!awaitEncode(original, variantFile, format)) {
+                    return null;
+                }
+            }
+            // An empty file marks a variant that wasn't worth keeping
+            return Files.size(variantFile) > 0
+                    ? new Variant(variantFile, format, mediaType.toString())
+                    : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean awaitEncode(Path original, Path variantFile, String format) {
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(variantFile, pending);
+        CompletableFuture<Boolean> future = existing != null ? existing : pending;
+        if (existing == null) {
+            try {
+                imageVariantExecutor.execute(() -> {
+                    try {
+                        pending.complete(encode(original, variantFile, format));
+                    } finally {
+                        // Also releases the waiters if the encoder blew up
+                        inFlight.remove(variantFile, pending);
+                        pending.complete(false);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // Encoder pool is busy; a later request will try again
+                inFlight.remove(variantFile, pending);
+                return false;
+            }
+        }
+        
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Returns true once the variant (or its marker) is in place
+    private boolean encode(Path original, Path variantFile, String format) {
+        if (Files.exists(variantFile)) {
+            // Finished by an encode that completed between the caller's check and ours
+            return true;
+        }
+        
+        Path tempFile = variantFile.resolveSibling(variantFile.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            boolean encoded = AVIF.equals(format)
+                    ? encodeAvif(original, tempFile)
+                    : encodeWebp(original, tempFile);
+            
+            String result;
+            if (encoded && Files.size(tempFile) < Files.size(original)) {
+                result = "generated";
+            } else {
+                // Not smaller, or the original couldn't be decoded: remember that and keep serving the original
+                Files.write(tempFile, new byte[0]);
+                result = encoded ? "not_smaller" : "failed";
+            }
+            Files.move(tempFile, variantFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            
+            encodeCounters.get(format).get(result).increment();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to encode " + format + " variant of " + original.getFileName() + ": " + e.getMessage());
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // Left for the orphan sweeper
+            }
+        }
+    }
+
+    private boolean encodeWebp(Path original, Path target) throws IOException {
+        BufferedImage image = ImageIO.read(original.toFile());
+        if (image == null) {
+            return false;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(IMAGE_WEBP.toString());
+        if (!writers.hasNext()) {
+            throw new IOException("No WebP encoder available");
+        }
+        
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionType("Lossy");
+            param.setCompressionQuality(webpQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return true;
+    }
+
+    private boolean encodeAvif(Path original, Path target) throws IOException {
+        List<String> command = new ArrayList<>();
+        for (String part : avifCommand.trim().split("\\s+")) {
+            command.add(part.replace("{input}", original.toString()).replace("{output}", target.toString()));
+        }
+        
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(avifTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("AVIF encoder timed out");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding AVIF", e);
+        }
+        return process.exitValue() == 0 && Files.exists(target);
+    }
+
+    private boolean avifEnabled() {
+        return avifCommand != null && !avifCommand.isBlank();
+    }
+
+    private static List<MediaType> parseAccept(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return List.of();
+        }
+        try {
+            return MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return List.of();
+        }
+    }
+
+    // Only an explicit mention counts: clients sending image/* or */* may not decode the newer formats
+    private static boolean accepts(List<MediaType> accepted, MediaType format) {
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getType().equals(format.getType()) && mediaType.getSubtype().equals(format.getSubtype())) {
+                return mediaType.getQualityValue() > 0;
+            }
+        }
+        return false;
+    }
+
+    private static String fileNameOf(String storageKey) {
+        return storageKey.substring(storageKey.lastIndexOf('/') + 1);
+    }
+}
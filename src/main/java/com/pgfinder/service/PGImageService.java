@@ -1,15 +1,37 @@
 package com.pgfinder.service;
 
+import com.pgfinder.dto.ImageMetadata;
+import com.pgfinder.dto.StoredImage;
 import com.pgfinder.model.PG;
 import com.pgfinder.model.PGImage;
 import com.pgfinder.repository.PGImageRepository;
+import com.pgfinder.repository.PGRepository;
+import com.pgfinder.storage.PresignedUpload;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Transactional
@@ -18,36 +40,178 @@ public class PGImageService {
     @Autowired
     private PGImageRepository pgImageRepository;
     
+    @Autowired
+    private PGRepository pgRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Autowired
     private ImageUploadService imageUploadService;
+    
+    @Autowired
+    private ImageMetadataService imageMetadataService;
+    
+    @Autowired
+    @Qualifier("imageUploadExecutor")
+    private ThreadPoolTaskExecutor imageUploadExecutor;
 
     public PGImage uploadPGImage(PG pg, MultipartFile file, String caption, Boolean isPrimary) {
         try {
-            // If this is set as primary, remove primary status from other images
-            if (isPrimary != null && isPrimary) {
-                List<PGImage> existingPrimaryImages = pgImageRepository.findByPgAndIsPrimaryTrue(pg);
-                for (PGImage img : existingPrimaryImages) {
-                    img.setIsPrimary(false);
-                    pgImageRepository.save(img);
-                }
-            }
-
-            // Upload image
-            String imageUrl = imageUploadService.uploadImage(file, "pg-images");
+            // Upload image (identical content reuses the stored file)
+            StoredImage storedImage = imageUploadService.storeImage(file, "pg-images");
             
             // Create PGImage entity
-            PGImage pgImage = new PGImage();
+            PGImage pgImage = buildPGImage(storedImage, file);
             pgImage.setPg(pg);
-            pgImage.setImageUrl(imageUrl);
             pgImage.setCaption(caption);
             pgImage.setIsPrimary(isPrimary != null ? isPrimary : false);
             
-            return pgImageRepository.save(pgImage);
+            PGImage savedImage = pgImageRepository.save(pgImage);
+            
+            // If this is set as primary, move the flag and the PG's pointer to it
+            if (savedImage.getIsPrimary()) {
+                promoteToPrimary(savedImage);
+            }
+            
+            return savedImage;
         } catch (Exception e) {
             throw new RuntimeException("Failed to upload image: " + e.getMessage(), e);
         }
     }
 
+    public List<PGImage> uploadPGImages(PG pg, List<MultipartFile> files, List<String> captions, Integer primaryIndex) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No files provided");
+        }
+        if (primaryIndex != null && (primaryIndex < 0 || primaryIndex >= files.size())) {
+            throw new IllegalArgumentException("Primary index is out of range");
+        }
+        
+        // Reject the whole batch before storing anything
+        for (MultipartFile file : files) {
+            imageUploadService.validateImageFile(file);
+        }
+        
+        // Hash, store and analyse the files in parallel on the bounded upload pool
+        List<CompletableFuture<PGImage>> uploads = new ArrayList<>();
+        for (MultipartFile file : files) {
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return buildPGImage(imageUploadService.storeImage(file, "pg-images"), file);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, imageUploadExecutor));
+        }
+        
+        List<PGImage> pgImages = new ArrayList<>();
+        try {
+            for (CompletableFuture<PGImage> upload : uploads) {
+                pgImages.add(upload.join());
+            }
+        } catch (CompletionException e) {
+            // Files already written stay unreferenced and are left to the orphan cleanup
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Failed to upload images: " + cause.getMessage(), cause);
+        }
+        
+        for (int i = 0; i < pgImages.size(); i++) {
+            PGImage pgImage = pgImages.get(i);
+            pgImage.setPg(pg);
+            pgImage.setCaption(captions != null && i < captions.size() ? captions.get(i) : null);
+            pgImage.setIsPrimary(primaryIndex != null && primaryIndex == i);
+        }
+        
+        List<PGImage> savedImages = pgImageRepository.saveAll(pgImages);
+        
+        // Switch the primary once for the whole batch
+        if (primaryIndex != null) {
+            promoteToPrimary(savedImages.get(primaryIndex));
+        }
+        
+        return savedImages;
+    }
+    
+    public PresignedUpload createDirectUpload(String filename, String contentType, long size, String sha256, Duration ttl) {
+        try {
+            return imageUploadService.presignUpload("pg-images", filename, contentType, size, sha256, ttl);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create upload URL: " + e.getMessage(), e);
+        }
+    }
+
+    // Registers an image the client uploaded straight to the object store with a presigned URL
+    public PGImage registerDirectUpload(PG pg, String storageKey, String caption, Boolean isPrimary) {
+        try {
+            StoredImage storedImage = imageUploadService.verifyDirectUpload("pg-images", storageKey);
+            return registerStoredImage(pg, storedImage, caption, isPrimary);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to register image: " + e.getMessage(), e);
+        }
+    }
+
+    // Creates the PGImage record for a file that is already in storage
+    public PGImage registerStoredImage(PG pg, StoredImage storedImage, String caption, Boolean isPrimary) throws IOException {
+        String storageKey = storedImage.getStorageKey();
+        PGImage pgImage = buildPGImage(storedImage, () -> imageUploadService.openStoredImage(storageKey));
+        pgImage.setPg(pg);
+        pgImage.setCaption(caption);
+        pgImage.setIsPrimary(isPrimary != null ? isPrimary : false);
+        
+        PGImage savedImage = pgImageRepository.save(pgImage);
+        if (savedImage.getIsPrimary()) {
+            promoteToPrimary(savedImage);
+        }
+        return savedImage;
+    }
+
+    // One UPDATE moves the primary flag and one UPDATE repoints the PG row.
+    // At most one primary per PG is also enforced by a database constraint (see DatabaseSchemaInitializer).
+    private void promoteToPrimary(PGImage image) {
+        Long pgId = image.getPg().getId();
+        pgImageRepository.markPrimaryImage(pgId, image.getId());
+        pgRepository.updatePrimaryImage(pgId, image.getId(), image.getImageUrl(), image.getWidth(),
+                image.getHeight(), image.getDominantColor(), image.getBlurHash());
+        
+        // The bulk update bypassed the persistence context; detach so the flag isn't written a second time
+        entityManager.detach(image);
+        image.setIsPrimary(true);
+    }
+    
+    // Creates an unsaved PGImage for a stored file, with its placeholder metadata filled in
+    private PGImage buildPGImage(StoredImage storedImage, InputStreamSource content) throws IOException {
+        PGImage pgImage = new PGImage();
+        pgImage.setImageUrl(storedImage.getUrl());
+        pgImage.setContentHash(storedImage.getContentHash());
+        pgImage.setStorageKey(storedImage.getStorageKey());
+        
+        // Identical content was analysed when it was first uploaded
+        Optional<PGImage> existing = storedImage.isDeduplicated()
+                ? pgImageRepository.findFirstByContentHashAndWidthIsNotNull(storedImage.getContentHash())
+                : Optional.empty();
+        
+        if (existing.isPresent()) {
+            PGImage source = existing.get();
+            pgImage.setWidth(source.getWidth());
+            pgImage.setHeight(source.getHeight());
+            pgImage.setByteSize(source.getByteSize());
+            pgImage.setDominantColor(source.getDominantColor());
+            pgImage.setBlurHash(source.getBlurHash());
+        } else {
+            ImageMetadata metadata;
+            try (InputStream inputStream = content.getInputStream()) {
+                metadata = imageMetadataService.extract(inputStream, storedImage.getSize());
+            }
+            pgImage.setWidth(metadata.getWidth());
+            pgImage.setHeight(metadata.getHeight());
+            pgImage.setByteSize(metadata.getByteSize());
+            pgImage.setDominantColor(metadata.getDominantColor());
+            pgImage.setBlurHash(metadata.getBlurHash());
+        }
+        return pgImage;
+    }
+    
     public List<PGImage> getImagesByPG(PG pg) {
         return pgImageRepository.findByPgOrderByIsPrimaryDescUploadedAtDesc(pg);
     }
@@ -61,20 +225,29 @@ public class PGImageService {
         if (imageOpt.isPresent()) {
             PGImage pgImage = imageOpt.get();
             
-            // Delete physical file
-            imageUploadService.deleteImage(pgImage.getImageUrl());
+            if (Boolean.TRUE.equals(pgImage.getIsPrimary())) {
+                pgRepository.clearPrimaryImage(pgImage.getPg().getId());
+            }
             
-            // Delete database record
+            // Delete database record first so the file's reference count excludes it
             pgImageRepository.delete(pgImage);
+            
+            // Delete physical file once no other image shares it
+            imageUploadService.deleteImage(pgImage.getImageUrl());
         }
     }
     
     public void deleteAllPGImages(PG pg) {
         List<PGImage> images = pgImageRepository.findByPg(pg);
+        Set<String> imageUrls = new LinkedHashSet<>();
         for (PGImage image : images) {
-            imageUploadService.deleteImage(image.getImageUrl());
+            imageUrls.add(image.getImageUrl());
         }
+        pgRepository.clearPrimaryImage(pg.getId());
         pgImageRepository.deleteByPg(pg);
+        for (String imageUrl : imageUrls) {
+            imageUploadService.deleteImage(imageUrl);
+        }
     }
 
     public PGImage setPrimaryImage(Long imageId) {
@@ -84,18 +257,8 @@ public class PGImageService {
         }
 
         PGImage newPrimaryImage = imageOpt.get();
-        PG pg = newPrimaryImage.getPg();
-
-        // Remove primary status from all images of this PG
-        List<PGImage> existingPrimaryImages = pgImageRepository.findByPgAndIsPrimaryTrue(pg);
-        for (PGImage img : existingPrimaryImages) {
-            img.setIsPrimary(false);
-            pgImageRepository.save(img);
-        }
-
-        // Set new primary image
-        newPrimaryImage.setIsPrimary(true);
-        return pgImageRepository.save(newPrimaryImage);
+        promoteToPrimary(newPrimaryImage);
+        return newPrimaryImage;
     }
 
     public PGImage updateImageCaption(Long imageId, String caption) {
@@ -116,4 +279,38 @@ public class PGImageService {
     public boolean hasPrimaryImage(PG pg) {
         return pgImageRepository.existsByPgAndIsPrimaryTrue(pg);
     }
+    
+    // Drops the image rows of PGs in one statement; their files are reclaimed by the orphan sweeper
+    public int purgeImagesOfPGs(List<Long> pgIds) {
+        pgRepository.clearPrimaryImages(pgIds);
+        return pgImageRepository.deleteByPgIds(pgIds);
+    }
+    
+    public Set<String> findReferencedStorageKeys(Collection<String> storageKeys) {
+        return new HashSet<>(pgImageRepository.findReferencedStorageKeys(storageKeys));
+    }
+    
+    public List<Long> findInactivePgIdsWithImages(LocalDateTime cutoff, int limit) {
+        return pgImageRepository.findInactivePgIdsWithImages(cutoff, PageRequest.of(0, limit));
+    }
+    
+    public List<String> findFlatStorageKeys(String after, int limit) {
+        return pgImageRepository.findFlatStorageKeys("pg-images", after, PageRequest.of(0, limit));
+    }
+
+    // Points every image stored under an old key at its new key, together with the PGs' primary image URLs
+    public int relocateStoredImages(Map<String, String> newKeysByOldKey) {
+        int updated = 0;
+        for (Map.Entry<String, String> relocation : newKeysByOldKey.entrySet()) {
+            updated += pgImageRepository.relocateStorageKey(relocation.getKey(), relocation.getValue());
+        }
+        if (!newKeysByOldKey.isEmpty()) {
+            pgRepository.refreshPrimaryImageUrls(newKeysByOldKey.values());
+        }
+        return updated;
+    }
+
+    public int backfillStorageKeys() {
+        return pgImageRepository.backfillStorageKeys();
+    }
 }
@@ -0,0 +1,146 @@
+package com.pgfinder.service;
+
+import com.pgfinder.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs BCrypt on the bounded passwordHashingExecutor. Callers block for the result, but the CPU work is
+// capped at the pool size, and a full queue fails fast with ServiceBusyException (503) instead of queueing.
+@Service
+public class PasswordHashingService {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}$");
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private ThreadPoolTaskExecutor passwordHashingExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    // Longest a request waits for its turn plus the hash itself
+    @Value("${app.security.password-hashing.timeout:PT5S}")
+    private Duration timeout;
+
+    private Counter rejected;
+
+    // Operation -> outcome -> timer, and operation -> queue wait timer; registered up front so the
+    // request path only does map lookups
+    private Map<String, Map<String, Timer>> hashingTimers;
+    private Map<String, Timer> queueWaitTimers;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("pgfinder.password.hashing.queue.depth", passwordHashingExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("pgfinder.password.hashing.active", passwordHashingExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Password hashing tasks running")
+                .register(meterRegistry);
+        rejected = Counter.builder("pgfinder.password.hashing.rejected")
+                .description("Password hashing requests turned away because the pool was saturated")
+                .register(meterRegistry);
+        
+        hashingTimers = new HashMap<>();
+        queueWaitTimers = new HashMap<>();
+        for (String operation : List.of("encode", "verify")) {
+            Map<String, Timer> byOutcome = new HashMap<>();
+            for (String outcome : List.of("ok", "timeout", "interrupted", "error")) {
+                byOutcome.put(outcome, Timer.builder("pgfinder.password.hashing")
+                        .description("Time from submitting a password hash or check until its result")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+            hashingTimers.put(operation, byOutcome);
+            queueWaitTimers.put(operation, Timer.builder("pgfinder.password.hashing.queue.wait")
+                    .description("Time password hashing tasks spent queued")
+                    .tag("operation", operation)
+                    .register(meterRegistry));
+        }
+    }
+
+    public String encode(String rawPassword) {
+        return run("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return run("verify", () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // True when the hash was made with a different cost than the configured one, in either direction
+    // (BCryptPasswordEncoder.upgradeEncoding only reports hashes that are too cheap)
+    public boolean needsRehash(String encodedPassword) {
+        Matcher matcher = encodedPassword != null ? BCRYPT_HASH.matcher(encodedPassword) : null;
+        return matcher != null && matcher.matches() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    private <T> T run(String operation, Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = passwordHashingExecutor.submit(() -> {
+                recordQueueWait(operation, System.nanoTime() - submittedAt);
+                return task.get();
+            });
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many sign-in requests, please retry shortly");
+        }
+        
+        String outcome = "ok";
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            future.cancel(true);
+            throw new ServiceBusyException("Too many sign-in requests, please retry shortly");
+        } catch (InterruptedException e) {
+            outcome = "interrupted";
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while hashing password");
+        } catch (ExecutionException e) {
+            outcome = "error";
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } finally {
+            hashingTimers.get(operation).get(outcome).record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordQueueWait(String operation, long nanos) {
+        queueWaitTimers.get(operation).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,154 @@
+package com.pgfinder.service;
+
+import com.pgfinder.exception.InvalidTokenException;
+import com.pgfinder.model.RefreshSession;
+import com.pgfinder.repository.RefreshSessionRepository;
+import com.pgfinder.util.JwtClaims;
+import com.pgfinder.util.TokenHasher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Refresh token sessions, one row per signed-in device. Tokens are looked up by their SHA-256, so
+// the table never holds a usable token. Hashes of tokens that were rotated away or revoked are also
+// remembered in memory until the token would have expired, which turns replays away without a query.
+@Service
+public class RefreshSessionService {
+
+    private static final int MAX_DEVICE_LABEL_LENGTH = 100;
+
+    @Value("${jwt.refresh.expiration}")
+    private Long refreshExpirationMs;
+
+    @Value("${jwt.refresh.revoked-cache.max-entries:10000}")
+    private int maxRevokedEntries;
+
+    @Autowired
+    private RefreshSessionRepository refreshSessionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Token hash -> epoch millis after which the token is rejected as expired anyway
+    private final Map<String, Long> revokedHashes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("pgfinder.jwt.revoked.cache.size", revokedHashes, Map::size)
+                .description("Rotated or revoked refresh token hashes remembered in memory")
+                .register(meterRegistry);
+    }
+
+    public RefreshSession createSession(Long userId, String refreshToken, String deviceLabel) {
+        RefreshSession session = new RefreshSession();
+        session.setUserId(userId);
+        session.setTokenHash(hash(refreshToken));
+        session.setDeviceLabel(truncate(deviceLabel));
+        session.setLastUsedAt(LocalDateTime.now());
+        session.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationMs * 1_000_000));
+        return refreshSessionRepository.save(session);
+    }
+
+    public boolean isRevoked(String refreshToken) {
+        Long expiresAt = revokedHashes.get(hash(refreshToken));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    // Swaps the session's token for newToken in a single UPDATE; the old token stops working immediately
+    public void rotate(JwtClaims claims, String oldToken, String newToken) {
+        String oldHash = hash(oldToken);
+        LocalDateTime now = LocalDateTime.now();
+        int rotated = refreshSessionRepository.rotate(oldHash, hash(newToken), claims.getUserId(),
+                now.plusNanos(refreshExpirationMs * 1_000_000), now);
+        rememberRevoked(oldHash, claims.getExpiresAt());
+        if (rotated == 0) {
+            throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+    }
+
+    public void revoke(JwtClaims claims, String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        refreshSessionRepository.deleteByTokenHash(tokenHash);
+        rememberRevoked(tokenHash, claims.getExpiresAt());
+    }
+
+    // Signs one device out of the user's account; returns false when there is no such session
+    public boolean revokeSession(Long userId, Long sessionId) {
+        Optional<RefreshSession> session = refreshSessionRepository.findById(sessionId)
+                .filter(s -> s.getUserId().equals(userId));
+        if (session.isEmpty()) {
+            return false;
+        }
+        refreshSessionRepository.deleteByIdAndUserId(sessionId, userId);
+        rememberRevoked(session.get().getTokenHash(), Instant.now().plusMillis(refreshExpirationMs));
+        return true;
+    }
+
+    public int revokeAll(Long userId) {
+        Instant expiresAt = Instant.now().plusMillis(refreshExpirationMs);
+        for (String tokenHash : refreshSessionRepository.findTokenHashesByUserId(userId)) {
+            rememberRevoked(tokenHash, expiresAt);
+        }
+        return refreshSessionRepository.deleteByUserId(userId);
+    }
+
+    public List<RefreshSession> findActiveSessions(Long userId) {
+        return refreshSessionRepository.findByUserIdAndExpiresAtAfterOrderByLastUsedAtDesc(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval:PT1H}")
+    public void removeExpiredSessions() {
+        List<Long> expiredIds;
+        int removed = 0;
+        while (!(expiredIds = refreshSessionRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, 500))).isEmpty()) {
+            removed += refreshSessionRepository.deleteByIdIn(expiredIds);
+        }
+        
+        long now = System.currentTimeMillis();
+        revokedHashes.values().removeIf(expiresAt -> expiresAt <= now);
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " expired refresh sessions");
+        }
+    }
+
+    private void rememberRevoked(String tokenHash, Instant tokenExpiresAt) {
+        if (revokedHashes.size() >= maxRevokedEntries) {
+            // Expired entries first; past that, forget arbitrary ones. A forgotten hash is still
+            // rejected by the database, just not before the query.
+            long now = System.currentTimeMillis();
+            revokedHashes.values().removeIf(expiresAt -> expiresAt <= now);
+            int target = maxRevokedEntries - Math.max(1, maxRevokedEntries / 10);
+            Iterator<String> iterator = revokedHashes.keySet().iterator();
+            while (revokedHashes.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        revokedHashes.put(tokenHash, tokenExpiresAt.toEpochMilli());
+    }
+
+    private static String hash(String token) {
+        return TokenHasher.sha256Hex(token);
+    }
+
+    private static String truncate(String deviceLabel) {
+        if (deviceLabel == null || deviceLabel.isBlank()) {
+            return null;
+        }
+        String trimmed = deviceLabel.trim();
+        return trimmed.length() > MAX_DEVICE_LABEL_LENGTH ? trimmed.substring(0, MAX_DEVICE_LABEL_LENGTH) : trimmed;
+    }
+}
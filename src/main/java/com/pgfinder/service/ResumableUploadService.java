@@ -0,0 +1,258 @@
+package com.pgfinder.service;
+
+import com.pgfinder.dto.StoredImage;
+import com.pgfinder.model.PG;
+import com.pgfinder.model.PGImage;
+import com.pgfinder.model.UploadSession;
+import com.pgfinder.repository.PGRepository;
+import com.pgfinder.repository.UploadSessionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// tus-style resumable uploads: create a session, PATCH chunks at the current offset, then finalize.
+// Received bytes are written into a part file under app.upload.dir, so a dropped connection only
+// costs the chunk in flight. With several app nodes, sessions need sticky routing or a shared upload dir.
+@Service
+public class ResumableUploadService {
+
+    private static final String PART_FOLDER = ".resumable";
+
+    @Value("${app.upload.dir:uploads/}")
+    private String uploadDir;
+
+    // Unfinished sessions and their part files are removed after this long
+    @Value("${app.images.resumable.expiry:PT24H}")
+    private Duration expiry;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PGRepository pgRepository;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private PGImageService pgImageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Striped locks serialize chunk writes and finalization for the same session
+    private final ReentrantLock[] sessionLocks = new ReentrantLock[64];
+
+    public ResumableUploadService() {
+        for (int i = 0; i < sessionLocks.length; i++) {
+            sessionLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public UploadSession createSession(PG pg, String filename, String contentType, long totalSize,
+                                       String caption, Boolean isPrimary) throws IOException {
+        // Reject files we would refuse at finalization before the client sends any bytes
+        imageUploadService.validateImage(filename, contentType, totalSize);
+        
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setPgId(pg.getId());
+        session.setFilename(filename);
+        session.setContentType(contentType);
+        session.setTotalSize(totalSize);
+        session.setCaption(caption);
+        session.setIsPrimary(isPrimary != null ? isPrimary : false);
+        session.setExpiresAt(LocalDateTime.now().plus(expiry));
+        
+        Path partFile = partFile(session.getId());
+        Files.createDirectories(partFile.getParent());
+        Files.createFile(partFile);
+        
+        return uploadSessionRepository.save(session);
+    }
+
+    public Optional<UploadSession> findSession(Long pgId, String uploadId) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> session.getPgId().equals(pgId))
+                .filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    // Writes one chunk at offset and returns the new offset. Bytes received before a dropped connection are kept.
+    public long appendChunk(String uploadId, long offset, InputStream body, long contentLength) throws IOException {
+        ReentrantLock lock = lockFor(uploadId);
+        lock.lock();
+        try {
+            UploadSession session = uploadSessionRepository.findById(uploadId)
+                    .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+            long currentOffset = session.getUploadOffset();
+            if (offset != currentOffset) {
+                throw new IllegalStateException("Upload-Offset " + offset + " does not match the current offset " + currentOffset);
+            }
+            
+            long remaining = session.getTotalSize() - currentOffset;
+            if (contentLength > remaining) {
+                throw new IllegalArgumentException("Chunk is larger than the remaining " + remaining + " bytes");
+            }
+            long limit = contentLength >= 0 ? contentLength : remaining;
+            
+            long written = 0;
+            IOException interrupted = null;
+            try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+                // Drop bytes from an earlier attempt that were written but never acknowledged
+                channel.truncate(currentOffset);
+                ReadableByteChannel source = Channels.newChannel(body);
+                while (written < limit) {
+                    long transferred = channel.transferFrom(source, currentOffset + written, limit - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // Usually the client went away mid-chunk; record what did arrive so it can resume from there
+                interrupted = e;
+            }
+            
+            if (written > 0 && uploadSessionRepository.advanceOffset(uploadId, currentOffset, currentOffset + written) == 0) {
+                throw new IllegalStateException("Upload was modified concurrently");
+            }
+            if (interrupted != null) {
+                throw interrupted;
+            }
+            return currentOffset + written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Turns a complete upload into a PGImage through the same path as a direct upload
+    public PGImage finalizeUpload(String uploadId) throws IOException {
+        ReentrantLock lock = lockFor(uploadId);
+        lock.lock();
+        try {
+            UploadSession session = uploadSessionRepository.findById(uploadId)
+                    .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+            if (!session.getUploadOffset().equals(session.getTotalSize())) {
+                throw new IllegalStateException("Upload is incomplete: " + session.getUploadOffset() + " of "
+                        + session.getTotalSize() + " bytes received");
+            }
+            
+            PG pg = pgRepository.findById(session.getPgId())
+                    .orElseThrow(() -> new IllegalArgumentException("PG not found"));
+            
+            // The store may move its source, so hand it a link to the part file. Until the session is
+            // deleted the part file stays, and a retry stores the same content again, which is a no-op.
+            Path partFile = partFile(uploadId);
+            Path stagedFile = partFile.resolveSibling(uploadId + ".staged");
+            StoredImage storedImage;
+            try {
+                linkOrCopy(partFile, stagedFile);
+                storedImage = imageUploadService.storeFile(stagedFile, session.getFilename(),
+                        session.getContentType(), "pg-images");
+            } finally {
+                // Still there when the content was a duplicate or the store copied it
+                Files.deleteIfExists(stagedFile);
+            }
+            
+            // The image row and the end of the session commit together, so a failure leaves neither
+            PGImage image = new TransactionTemplate(transactionManager).execute(status -> {
+                try {
+                    PGImage registered = pgImageService.registerStoredImage(pg, storedImage, session.getCaption(),
+                            session.getIsPrimary());
+                    if (uploadSessionRepository.deleteSession(uploadId) == 0) {
+                        throw new IllegalStateException("Upload was finalized or cancelled concurrently");
+                    }
+                    return registered;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            
+            try {
+                Files.deleteIfExists(partFile);
+            } catch (IOException e) {
+                System.err.println("Failed to delete upload part " + uploadId + ": " + e.getMessage());
+            }
+            return image;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(String uploadId) {
+        ReentrantLock lock = lockFor(uploadId);
+        lock.lock();
+        try {
+            removeSession(uploadId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.resumable.cleanup-interval:PT1H}")
+    public void removeExpiredSessions() {
+        List<String> expiredIds;
+        int removed = 0;
+        while (!(expiredIds = uploadSessionRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, 500))).isEmpty()) {
+            for (String uploadId : expiredIds) {
+                removeSession(uploadId);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " expired upload sessions");
+        }
+    }
+
+    private void removeSession(String uploadId) {
+        uploadSessionRepository.deleteSession(uploadId);
+        try {
+            Files.deleteIfExists(partFile(uploadId));
+        } catch (IOException e) {
+            System.err.println("Failed to delete upload part " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path partFile(String uploadId) {
+        return Paths.get(uploadDir, PART_FOLDER, uploadId + ".part");
+    }
+
+    private ReentrantLock lockFor(String uploadId) {
+        return sessionLocks[Math.floorMod(uploadId.hashCode(), sessionLocks.length)];
+    }
+}
@@ -1,23 +1,29 @@
 package com.pgfinder.service;
 
 import com.pgfinder.dto.JwtResponse;
+import com.pgfinder.dto.UserSummary;
 import com.pgfinder.exception.EmailNotVerifiedException;
 import com.pgfinder.exception.InvalidTokenException;
+import com.pgfinder.exception.ServiceBusyException;
 import com.pgfinder.exception.UserAlreadyExistsException;
 import com.pgfinder.exception.UserNotFoundException;
 import com.pgfinder.model.User;
+import com.pgfinder.model.UserToken;
 import com.pgfinder.repository.UserRepository;
+import com.pgfinder.util.JwtClaims;
 import com.pgfinder.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -27,7 +33,7 @@ public class UserService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     
     @Autowired
     private JwtUtil jwtUtil;
@@ -35,31 +41,61 @@ public class UserService {
     @Autowired
     private EmailService emailService;
     
+    @Autowired
+    private RefreshSessionService refreshSessionService;
+    
+    @Autowired
+    private UserTokenService userTokenService;
+    
+    @Autowired
+    private UserStatsService userStatsService;
+    
     @Value("${app.verification.timeout:180000}") // 3 minutes default
     private Long verificationTimeoutMs;
     
+    @Value("${app.verification.token-ttl:PT24H}")
+    private Duration verificationTokenTtl;
+    
     public User registerUser(User user) {
         if (userRepository.existsByEmail(user.getEmail())) {
             throw new IllegalArgumentException("Email already exists");
         }
         
         // Encode password
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         user.setIsActive(true);
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userStatsService.recordRegistered(savedUser);
+        return savedUser;
     }
     
     public Optional<User> loginUser(String email, String password) {
         Optional<User> userOpt = userRepository.findByEmailAndIsActiveTrue(email);
         
-        if (userOpt.isPresent() && passwordEncoder.matches(password, userOpt.get().getPassword())) {
+        if (userOpt.isPresent() && verifyPassword(userOpt.get(), password)) {
             return userOpt;
         }
         
         return Optional.empty();
     }
     
+    // Checks the password and, when the stored hash uses an outdated BCrypt cost, replaces it while
+    // the plain password is at hand; the new hash is written with the surrounding transaction
+    private boolean verifyPassword(User user, String password) {
+        if (!passwordHashingService.matches(password, user.getPassword())) {
+            return false;
+        }
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            try {
+                user.setPassword(passwordHashingService.encode(password));
+            } catch (ServiceBusyException e) {
+                // Not worth failing the login over; it will be upgraded next time
+            }
+        }
+        return true;
+    }
+    
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
@@ -76,6 +112,9 @@ public class UserService {
         Optional<User> userOpt = userRepository.findById(userId);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
+            if (Boolean.TRUE.equals(user.getIsActive())) {
+                userStatsService.recordDeactivated(user);
+            }
             user.setIsActive(false);
             userRepository.save(user);
         }
@@ -93,14 +132,32 @@ public class UserService {
         return userRepository.findActiveUsersByType(null);
     }
     
+    // One keyset page of active users, of one type or (type null) all, ordered by id
+    public List<UserSummary> findActiveUserPage(User.UserType userType, long afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return userType != null
+                ? userRepository.findActiveSummariesByTypeAfter(userType, afterId, page)
+                : userRepository.findActiveSummariesAfter(afterId, page);
+    }
+    
+    // Hands every matching user to the consumer while the cursor is open, without collecting them
+    @Transactional(readOnly = true)
+    public void forEachActiveUser(User.UserType userType, Consumer<UserSummary> consumer) {
+        try (Stream<UserSummary> users = userType != null
+                ? userRepository.streamActiveSummariesByType(userType)
+                : userRepository.streamActiveSummaries()) {
+            users.forEach(consumer);
+        }
+    }
+    
     public boolean changePassword(Long userId, String currentPassword, String newPassword) {
         Optional<User> userOpt = userRepository.findById(userId);
         
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             
-            if (passwordEncoder.matches(currentPassword, user.getPassword())) {
-                user.setPassword(passwordEncoder.encode(newPassword));
+            if (passwordHashingService.matches(currentPassword, user.getPassword())) {
+                user.setPassword(passwordHashingService.encode(newPassword));
                 userRepository.save(user);
                 return true;
             }
@@ -132,46 +189,44 @@ public class UserService {
         }
         
         // Encode password
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         user.setIsActive(true);
         user.setVerified(false);
         
-        // Generate verification token
-        String verificationToken = UUID.randomUUID().toString();
-        user.setVerificationToken(verificationToken);
-        user.setVerificationTokenExpiry(LocalDateTime.now().plusHours(24));
         user.setLastVerificationSent(LocalDateTime.now());
         
         User savedUser = userRepository.save(user);
+        userStatsService.recordRegistered(savedUser);
         
-        // Send verification email
-        try {
-            emailService.sendVerificationEmail(user.getEmail(), verificationToken, user.getName());
-        } catch (Exception e) {
-            // Log error but don't fail registration
-            System.err.println("Failed to send verification email: " + e.getMessage());
-        }
+        // Generate verification token
+        String verificationToken = userTokenService.issue(savedUser.getId(), UserToken.Purpose.EMAIL_VERIFICATION, verificationTokenTtl);
+        
+        // Queued in this transaction; the outbox worker sends it once the user row is committed
+        emailService.queueVerificationEmail(user.getEmail(), verificationToken, user.getName());
         
         return savedUser;
     }
     
     public boolean verifyEmail(String token) {
-        Optional<User> userOpt = userRepository.findByVerificationToken(token);
+        Optional<UserToken> tokenOpt = userTokenService.find(token, UserToken.Purpose.EMAIL_VERIFICATION);
         
-        if (userOpt.isEmpty()) {
+        if (tokenOpt.isEmpty()) {
             throw new InvalidTokenException("Invalid verification token");
         }
         
-        User user = userOpt.get();
-        
-        if (user.getVerificationTokenExpiry().isBefore(LocalDateTime.now())) {
+        if (tokenOpt.get().getExpiresAt().isBefore(LocalDateTime.now())) {
             throw new InvalidTokenException("Verification token has expired");
         }
         
+        User user = userRepository.findById(tokenOpt.get().getUserId())
+                .orElseThrow(() -> new InvalidTokenException("Invalid verification token"));
+        
+        if (!user.isVerified()) {
+            userStatsService.recordVerified(user);
+        }
         user.setVerified(true);
-        user.setVerificationToken(null);
-        user.setVerificationTokenExpiry(null);
         userRepository.save(user);
+        userTokenService.revoke(user.getId(), UserToken.Purpose.EMAIL_VERIFICATION);
         
         return true;
     }
@@ -197,26 +252,24 @@ public class UserService {
             }
         }
         
-        // Generate new verification token
-        String verificationToken = UUID.randomUUID().toString();
-        user.setVerificationToken(verificationToken);
-        user.setVerificationTokenExpiry(LocalDateTime.now().plusHours(24));
+        // Generate new verification token; the previous one stops working
+        String verificationToken = userTokenService.issue(user.getId(), UserToken.Purpose.EMAIL_VERIFICATION, verificationTokenTtl);
         user.setLastVerificationSent(LocalDateTime.now());
         
         userRepository.save(user);
         
-        // Send verification email
-        emailService.sendVerificationEmail(user.getEmail(), verificationToken, user.getName());
+        // Queue verification email
+        emailService.queueVerificationEmail(user.getEmail(), verificationToken, user.getName());
     }
     
     // ===============================
     // JWT AUTHENTICATION METHODS
     // ===============================
     
-    public JwtResponse authenticateUser(String email, String password) {
+    public JwtResponse authenticateUser(String email, String password, String deviceLabel) {
         Optional<User> userOpt = userRepository.findByEmailAndIsActiveTrue(email);
         
-        if (userOpt.isEmpty() || !passwordEncoder.matches(password, userOpt.get().getPassword())) {
+        if (userOpt.isEmpty() || !verifyPassword(userOpt.get(), password)) {
             throw new InvalidTokenException("Invalid credentials");
         }
         
@@ -231,57 +284,46 @@ public class UserService {
         String accessToken = jwtUtil.generateToken(user.getEmail(), user.getUserType().toString(), user.getId());
         String refreshToken = jwtUtil.generateRefreshToken(user.getEmail(), user.getUserType().toString(), user.getId());
         
-        // Save refresh token to database
-        user.setRefreshToken(refreshToken);
-        user.setRefreshTokenExpiry(LocalDateTime.now().plusDays(7)); // 7 days
-        userRepository.save(user);
+        // Each login is its own session, so signing in on a second device keeps the first one signed in
+        refreshSessionService.createSession(user.getId(), refreshToken, deviceLabel);
         
         return new JwtResponse(accessToken, refreshToken, user.getEmail(), user.getName(), 
                              user.getUserType().toString(), user.getId(), user.isVerified());
     }
     
     public JwtResponse refreshToken(String refreshToken) {
-        // Validate refresh token format
-        if (!jwtUtil.isRefreshToken(refreshToken)) {
+        // Verify once, then read the claims from the parsed token
+        JwtClaims claims = jwtUtil.parse(refreshToken);
+        if (!claims.isRefreshToken() || claims.getUserId() == null) {
             throw new InvalidTokenException("Invalid refresh token");
         }
         
-        String userEmail = jwtUtil.extractUsername(refreshToken);
-        Optional<User> userOpt = userRepository.findByEmailAndIsActiveTrue(userEmail);
-        
-        if (userOpt.isEmpty()) {
-            throw new UserNotFoundException("User not found");
-        }
-        
-        User user = userOpt.get();
-        
-        // Check if refresh token matches and is not expired
-        if (!refreshToken.equals(user.getRefreshToken()) || 
-            user.getRefreshTokenExpiry().isBefore(LocalDateTime.now())) {
+        // Replay of a token that was already rotated or revoked
+        if (refreshSessionService.isRevoked(refreshToken)) {
             throw new InvalidTokenException("Invalid or expired refresh token");
         }
         
+        UserRepository.AuthView user = userRepository.findAuthViewByIdAndIsActiveTrue(claims.getUserId())
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
+        
         // Generate new tokens
         String newAccessToken = jwtUtil.generateToken(user.getEmail(), user.getUserType().toString(), user.getId());
         String newRefreshToken = jwtUtil.generateRefreshToken(user.getEmail(), user.getUserType().toString(), user.getId());
         
-        // Update refresh token in database
-        user.setRefreshToken(newRefreshToken);
-        user.setRefreshTokenExpiry(LocalDateTime.now().plusDays(7));
-        userRepository.save(user);
+        // Fails when the session was revoked, expired or already rotated by a concurrent refresh
+        refreshSessionService.rotate(claims, refreshToken, newRefreshToken);
         
         return new JwtResponse(newAccessToken, newRefreshToken, user.getEmail(), user.getName(),
                              user.getUserType().toString(), user.getId(), user.isVerified());
     }
     
-    public void logout(String userEmail) {
-        Optional<User> userOpt = userRepository.findByEmail(userEmail);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setRefreshToken(null);
-            user.setRefreshTokenExpiry(null);
-            userRepository.save(user);
+    // Ends the session the refresh token belongs to; other devices stay signed in
+    public void logout(String refreshToken) {
+        JwtClaims claims = jwtUtil.parse(refreshToken);
+        if (!claims.isRefreshToken()) {
+            throw new InvalidTokenException("Invalid refresh token");
         }
+        refreshSessionService.revoke(claims, refreshToken);
     }
     
     // ===============================
@@ -294,12 +336,12 @@ public class UserService {
             User admin = new User();
             admin.setName("System Administrator");
             admin.setEmail(adminEmail);
-            admin.setPassword(passwordEncoder.encode("admin123"));
+            admin.setPassword(passwordHashingService.encode("admin123"));
             admin.setPhoneNumber("+919876543210");
             admin.setUserType(User.UserType.ADMIN);
             admin.setIsActive(true);
             admin.setVerified(true); // Admin doesn't need verification
-            userRepository.save(admin);
+            userStatsService.recordRegistered(userRepository.save(admin));
         }
     }
 }
@@ -0,0 +1,190 @@
+package com.pgfinder.service;
+
+import com.pgfinder.dto.UserStats;
+import com.pgfinder.model.User;
+import com.pgfinder.repository.PGRepository;
+import com.pgfinder.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Counters behind GET /users/stats, so the dashboard's polling never touches the database. UserService
+// bumps them after each register/verify/deactivate commits; reconcile() rebuilds them from three
+// aggregate queries on a schedule, which also corrects any drift (admin edits, deleted accounts) and
+// refreshes the PG figures, which are only counted there.
+@Service
+public class UserStatsService {
+
+    @Value("${app.stats.signup-days:30}")
+    private int signupDays;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PGRepository pgRepository;
+
+    private volatile Counters counters;
+
+    public UserStats getStats() {
+        Counters current = counters;
+        if (current == null) {
+            current = rebuild();
+        }
+        
+        UserStats stats = new UserStats();
+        stats.setTotalUsers(current.active(User.UserType.USER));
+        stats.setTotalOwners(current.active(User.UserType.OWNER));
+        stats.setTotalAdmins(current.active(User.UserType.ADMIN));
+        stats.setVerifiedUsers(current.activeVerified(User.UserType.USER));
+        stats.setVerifiedOwners(current.activeVerified(User.UserType.OWNER));
+        stats.setUserVerifiedRatio(ratio(stats.getVerifiedUsers(), stats.getTotalUsers()));
+        stats.setOwnerVerifiedRatio(ratio(stats.getVerifiedOwners(), stats.getTotalOwners()));
+        stats.setActivePGs(current.activePGs);
+        stats.setVerifiedPGs(current.verifiedPGs);
+        stats.setOwnersWithPGs(current.ownersWithPGs);
+        
+        LocalDate firstDay = LocalDate.now().minusDays(signupDays - 1);
+        Map<LocalDate, Long> signups = new LinkedHashMap<>();
+        current.signupsPerDay.tailMap(firstDay).forEach((day, count) -> signups.put(day, count.get()));
+        stats.setSignupsPerDay(signups);
+        stats.setReconciledAt(current.reconciledAt);
+        return stats;
+    }
+
+    public void recordRegistered(User user) {
+        User.UserType type = user.getUserType();
+        boolean active = Boolean.TRUE.equals(user.getIsActive());
+        boolean verified = user.isVerified();
+        afterCommit(current -> {
+            if (active) {
+                current.activeCounter(type).incrementAndGet();
+                if (verified) {
+                    current.activeVerifiedCounter(type).incrementAndGet();
+                }
+            }
+            current.signupsPerDay.computeIfAbsent(LocalDate.now(), day -> new AtomicLong()).incrementAndGet();
+        });
+    }
+
+    public void recordVerified(User user) {
+        User.UserType type = user.getUserType();
+        if (Boolean.TRUE.equals(user.getIsActive())) {
+            afterCommit(current -> current.activeVerifiedCounter(type).incrementAndGet());
+        }
+    }
+
+    public void recordDeactivated(User user) {
+        User.UserType type = user.getUserType();
+        boolean verified = user.isVerified();
+        afterCommit(current -> {
+            current.activeCounter(type).decrementAndGet();
+            if (verified) {
+                current.activeVerifiedCounter(type).decrementAndGet();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    // Updates that land between the queries and the swap are lost until the next run
+    private Counters rebuild() {
+        Counters fresh = new Counters();
+        for (UserRepository.TypeCounts row : userRepository.countByUserType()) {
+            fresh.activeCounter(row.getUserType()).set(nullToZero(row.getActive()));
+            fresh.activeVerifiedCounter(row.getUserType()).set(nullToZero(row.getActiveVerified()));
+        }
+        
+        LocalDate firstDay = LocalDate.now().minusDays(signupDays - 1);
+        for (UserRepository.DailySignups row : userRepository.countSignupsPerDay(firstDay.atStartOfDay())) {
+            fresh.signupsPerDay.put(row.getDay(), new AtomicLong(nullToZero(row.getSignups())));
+        }
+        
+        PGRepository.ListingCounts listings = pgRepository.countActiveListings();
+        fresh.activePGs = nullToZero(listings.getActive());
+        fresh.verifiedPGs = nullToZero(listings.getVerified());
+        fresh.ownersWithPGs = nullToZero(listings.getOwners());
+        fresh.reconciledAt = LocalDateTime.now();
+        
+        counters = fresh;
+        return fresh;
+    }
+
+    private void afterCommit(Consumer<Counters> update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(update);
+                }
+            });
+        } else {
+            apply(update);
+        }
+    }
+
+    private void apply(Consumer<Counters> update) {
+        // Before the first reconcile there is nothing to update; reconcile will count the change
+        Counters current = counters;
+        if (current != null) {
+            update.accept(current);
+        }
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0.0 : (double) part / whole;
+    }
+
+    private static long nullToZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static final class Counters {
+        private final Map<User.UserType, AtomicLong> active = new EnumMap<>(User.UserType.class);
+        private final Map<User.UserType, AtomicLong> activeVerified = new EnumMap<>(User.UserType.class);
+        private final ConcurrentSkipListMap<LocalDate, AtomicLong> signupsPerDay = new ConcurrentSkipListMap<>();
+        private long activePGs;
+        private long verifiedPGs;
+        private long ownersWithPGs;
+        private LocalDateTime reconciledAt;
+        
+        Counters() {
+            // Filled up front so the maps are never modified once published
+            for (User.UserType type : User.UserType.values()) {
+                active.put(type, new AtomicLong());
+                activeVerified.put(type, new AtomicLong());
+            }
+        }
+        
+        AtomicLong activeCounter(User.UserType type) {
+            return active.get(type);
+        }
+        
+        AtomicLong activeVerifiedCounter(User.UserType type) {
+            return activeVerified.get(type);
+        }
+        
+        long active(User.UserType type) {
+            return active.get(type).get();
+        }
+        
+        long activeVerified(User.UserType type) {
+            return activeVerified.get(type).get();
+        }
+    }
+}
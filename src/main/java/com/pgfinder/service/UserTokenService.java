@@ -0,0 +1,115 @@
+package com.pgfinder.service;
+
+import com.pgfinder.model.UserToken;
+import com.pgfinder.repository.RefreshSessionRepository;
+import com.pgfinder.repository.UserRepository;
+import com.pgfinder.repository.UserTokenRepository;
+import com.pgfinder.util.TokenHasher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Email verification and password reset tokens. Issuing a token replaces any earlier one with the same
+// purpose, so only the most recent email works. The sweepers below delete in small batches, each its own
+// short transaction, so they never hold locks on users for long.
+@Service
+public class UserTokenService {
+
+    @Value("${app.verification.cleanup.batch-size:200}")
+    private int cleanupBatchSize;
+
+    // How long after the last verification email an unconfirmed account is deleted
+    @Value("${app.verification.unverified-retention:P7D}")
+    private Duration unverifiedRetention;
+
+    @Autowired
+    private UserTokenRepository userTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshSessionRepository refreshSessionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Returns the token to mail; only its hash is stored
+    public String issue(Long userId, UserToken.Purpose purpose, Duration ttl) {
+        userTokenRepository.deleteByUserIdAndPurpose(userId, purpose);
+        
+        String token = UUID.randomUUID().toString();
+        UserToken userToken = new UserToken();
+        userToken.setUserId(userId);
+        userToken.setPurpose(purpose);
+        userToken.setTokenHash(TokenHasher.sha256Hex(token));
+        userToken.setExpiresAt(LocalDateTime.now().plus(ttl));
+        userTokenRepository.save(userToken);
+        return token;
+    }
+
+    // The stored token, expired or not; callers check getExpiresAt and revoke it once used
+    public Optional<UserToken> find(String token, UserToken.Purpose purpose) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        return userTokenRepository.findByTokenHashAndPurpose(TokenHasher.sha256Hex(token), purpose);
+    }
+
+    public void revoke(Long userId, UserToken.Purpose purpose) {
+        userTokenRepository.deleteByUserIdAndPurpose(userId, purpose);
+    }
+
+    @Scheduled(fixedDelayString = "${app.verification.cleanup-interval:PT1H}")
+    public void removeExpiredTokens() {
+        List<Long> expiredIds;
+        int removed = 0;
+        while (!(expiredIds = userTokenRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, cleanupBatchSize))).isEmpty()) {
+            removed += userTokenRepository.deleteByIdIn(expiredIds);
+        }
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " expired user tokens");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.verification.cleanup-interval:PT1H}")
+    public void removeStaleUnverifiedUsers() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(unverifiedRetention);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> staleIds;
+        int removed = 0;
+        while (!(staleIds = userRepository.findStaleUnverifiedIds(cutoff, PageRequest.of(0, cleanupBatchSize))).isEmpty()) {
+            List<Long> candidateIds = staleIds;
+            int deleted = transaction.execute(status -> {
+                // Anyone who verified since the select keeps everything; the rest can't verify until this commits
+                List<Long> lockedIds = userRepository.lockUnverifiedByIdIn(candidateIds);
+                if (lockedIds.isEmpty()) {
+                    return 0;
+                }
+                userRepository.releaseFavoriteCountsOfUserIdIn(lockedIds);
+                userRepository.deleteFavoritesByUserIdIn(lockedIds);
+                refreshSessionRepository.deleteByUserIdIn(lockedIds);
+                userTokenRepository.deleteByUserIdIn(lockedIds);
+                return userRepository.deleteUnverifiedByIdIn(lockedIds);
+            });
+            removed += deleted;
+            if (deleted == 0) {
+                // Everything selected was verified in the meantime; the next run will see fresh data
+                break;
+            }
+        }
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " accounts that never verified their email");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.pgfinder.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+// Where image bytes live. Keys are relative paths such as "pg-images/<sha256>.jpg"; the
+// implementation is chosen with app.storage.type (local or s3).
+public interface ImageStorage {
+
+    // The key a new file named filename gets inside folder
+    default String keyFor(String folder, String filename) {
+        return folder + "/" + filename;
+    }
+
+    // Stores the file under key unless an object with that key already exists, in which case its
+    // modification time is refreshed instead. Returns true when bytes were written.
+    boolean storeIfAbsent(String key, Path source, String contentType) throws IOException;
+
+    // Null when there is no object with this key
+    StorageObject stat(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    // Deletes the object unless it was modified after cutoff, e.g. reused by a deduplicated upload whose
+    // row isn't committed yet. Returns true when it was deleted.
+    boolean deleteIfNotModifiedSince(String key, Instant cutoff) throws IOException;
+
+    // Lazily lists every object under prefix; close the stream when done
+    Stream<StorageObject> list(String prefix) throws IOException;
+
+    String publicUrl(String key);
+
+    // Inverse of publicUrl; empty when the URL doesn't point into this storage
+    String keyFromUrl(String url);
+
+    // Whether clients can upload straight to the store with presignUpload
+    default boolean supportsDirectUpload() {
+        return false;
+    }
+
+    // A URL the client can PUT the file to directly, so the bytes never pass through the app.
+    // The store rejects the upload unless its SHA-256 matches sha256Hex. Only call when supportsDirectUpload().
+    default PresignedUpload presignUpload(String key, String contentType, long size, String sha256Hex, Duration ttl) {
+        throw new IllegalStateException(getClass().getSimpleName() + " does not support direct uploads");
+    }
+}
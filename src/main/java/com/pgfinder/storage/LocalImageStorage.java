@@ -0,0 +1,269 @@
+package com.pgfinder.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Keeps images under app.upload.dir and serves them through ImageController. Files are fanned out
+// into two levels of subdirectories named after the start of the file name (pg-images/ab/cd/abcd....jpg)
+// so no directory grows past a few thousand entries. Files from before the sharded layout are found
+// under either key until ImageLayoutMigrator has moved them.
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+
+    private static final String IMAGES_PATH = "/images/";
+    private static final Pattern HEX_PREFIX = Pattern.compile("^[0-9a-f]{4}$");
+
+    @Value("${app.upload.dir:uploads/}")
+    private String uploadDir;
+
+    @Value("${server.port:8080}")
+    private String serverPort;
+
+    @Value("${server.servlet.context-path:/api}")
+    private String contextPath;
+
+    // Empty means http://localhost:<port><context-path>/images
+    @Value("${app.storage.public-base-url:}")
+    private String publicBaseUrl;
+
+    private Path root;
+
+    // Striped locks serialize the exists/move/unlink steps for the same stored file
+    private final ReentrantLock[] fileLocks = new ReentrantLock[64];
+
+    public LocalImageStorage() {
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        if (publicBaseUrl.isEmpty()) {
+            publicBaseUrl = String.format("http://localhost:%s%s/images", serverPort, contextPath);
+        } else if (publicBaseUrl.endsWith("/")) {
+            publicBaseUrl = publicBaseUrl.substring(0, publicBaseUrl.length() - 1);
+        }
+    }
+
+    @Override
+    public String keyFor(String folder, String filename) {
+        String shard = shardOf(filename);
+        return folder + "/" + shard.substring(0, 2) + "/" + shard.substring(2, 4) + "/" + filename;
+    }
+
+    @Override
+    public boolean storeIfAbsent(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                // Refresh the timestamp so a concurrent unlink leaves the file alone
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return false;
+            }
+            String alternateKey = alternateKey(key);
+            if (alternateKey != null && Files.exists(resolve(alternateKey))) {
+                // Same content in the other layout; give this key its own link so each layout's
+                // references keep their file alive independently
+                linkOrCopy(resolve(alternateKey), target);
+                return false;
+            }
+            try {
+                // source is created next to the target by callers, so this is a rename
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Another node stored the same content first
+                return false;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        Path file = resolveExisting(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toInstant());
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolveExisting(key));
+    }
+
+    @Override
+    public boolean deleteIfNotModifiedSince(String key, Instant cutoff) throws IOException {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Path file = resolve(key);
+            if (!Files.exists(file)) {
+                return false;
+            }
+            if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                return false;
+            }
+            return Files.deleteIfExists(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<StorageObject> list(String prefix) throws IOException {
+        Path start = resolve(prefix);
+        if (!Files.isDirectory(start)) {
+            return Stream.empty();
+        }
+        return Files.walk(start)
+                .filter(Files::isRegularFile)
+                .map(file -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        return new StorageObject(toKey(file), attributes.size(),
+                                attributes.lastModifiedTime().toInstant());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public String publicUrl(String key) {
+        return publicBaseUrl + "/" + key;
+    }
+
+    @Override
+    public String keyFromUrl(String url) {
+        if (url.startsWith(publicBaseUrl + "/")) {
+            return url.substring(publicBaseUrl.length() + 1);
+        }
+        // URLs saved with a different host or port still carry the key after /images/
+        int imagesIndex = url.indexOf(IMAGES_PATH);
+        return imagesIndex != -1 ? url.substring(imagesIndex + IMAGES_PATH.length()) : "";
+    }
+
+    // Gives newKey its own link to the file stored under oldKey (hard link, or a copy where links
+    // aren't supported). The link's timestamp is refreshed so the orphan sweeper leaves it alone
+    // until the rows pointing at it have been rewritten.
+    public void relocate(String oldKey, String newKey) throws IOException {
+        Path source = resolve(oldKey);
+        Path target = resolve(newKey);
+        Files.createDirectories(target.getParent());
+
+        ReentrantLock lock = lockFor(newKey);
+        lock.lock();
+        try {
+            if (!Files.exists(target)) {
+                linkOrCopy(source, target);
+            } else {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Serving lookups: the file for key, or the same file in the other layout while a migration is running
+    public Path resolveExisting(String key) {
+        Path file = resolve(key);
+        if (Files.exists(file)) {
+            return file;
+        }
+        String alternateKey = alternateKey(key);
+        if (alternateKey != null) {
+            Path alternate = resolve(alternateKey);
+            if (Files.exists(alternate)) {
+                return alternate;
+            }
+        }
+        return file;
+    }
+
+    // Flat keys map to their sharded form and sharded keys to their flat form; null for anything else
+    public String alternateKey(String key) {
+        int nameStart = key.lastIndexOf('/') + 1;
+        if (nameStart == 0) {
+            return null;
+        }
+        String filename = key.substring(nameStart);
+        String directory = key.substring(0, nameStart - 1);
+        String shard = shardOf(filename);
+        String shardSuffix = "/" + shard.substring(0, 2) + "/" + shard.substring(2, 4);
+        if (directory.endsWith(shardSuffix)) {
+            return directory.substring(0, directory.length() - shardSuffix.length()) + "/" + filename;
+        }
+        return keyFor(directory, filename);
+    }
+
+    public boolean isSharded(String key) {
+        String alternateKey = alternateKey(key);
+        return alternateKey != null && alternateKey.length() < key.length();
+    }
+
+    // Content-addressed and UUID names already start with well-spread hex digits; anything else is hashed
+    private String shardOf(String filename) {
+        String prefix = filename.length() >= 4 ? filename.substring(0, 4).toLowerCase() : "";
+        if (HEX_PREFIX.matcher(prefix).matches()) {
+            return prefix;
+        }
+        return String.format("%08x", filename.hashCode()).substring(0, 4);
+    }
+
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+    }
+
+    // Rejects keys that escape the upload directory
+    public Path resolve(String key) {
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return file;
+    }
+
+    private String toKey(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return fileLocks[Math.floorMod(key.hashCode(), fileLocks.length)];
+    }
+}
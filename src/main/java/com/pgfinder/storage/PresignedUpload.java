@@ -0,0 +1,20 @@
+package com.pgfinder.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUpload {
+    private String storageKey;
+    private String uploadUrl;
+    private String method;
+    // Headers the client must send exactly as given, or the signature won't match
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,322 @@
+package com.pgfinder.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+// Keeps images in an S3-compatible bucket (AWS S3, MinIO, ...) so any number of app nodes can share them.
+// Clients load images straight from the bucket or a CDN in front of it.
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+
+    // Keys are content-addressed, so cached copies never go stale
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Empty uses AWS; set it to e.g. http://localhost:9000 for MinIO
+    @Value("${app.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.storage.s3.bucket}")
+    private String bucket;
+
+    // Empty falls back to the default AWS credential chain
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+
+    // MinIO and most other stand-ins need path-style requests
+    @Value("${app.storage.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    // Empty derives the bucket URL from the endpoint; set it when a CDN fronts the bucket
+    @Value("${app.storage.public-base-url:}")
+    private String publicBaseUrl;
+
+    @Value("${app.storage.s3.multipart-threshold:16MB}")
+    private DataSize multipartThreshold;
+
+    @Value("${app.storage.s3.part-size:8MB}")
+    private DataSize partSize;
+
+    @Value("${app.storage.s3.upload-threads:4}")
+    private int uploadThreads;
+
+    private S3Client s3Client;
+    private S3Presigner s3Presigner;
+    private ThreadPoolTaskExecutor partUploadExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (partSize.toBytes() < DataSize.ofMegabytes(5).toBytes()) {
+            // S3 rejects multipart uploads whose non-final parts are smaller than 5MB
+            throw new IllegalStateException("app.storage.s3.part-size must be at least 5MB");
+        }
+
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration serviceConfiguration = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(serviceConfiguration);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(serviceConfiguration);
+        if (!endpoint.isEmpty()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        s3Client = clientBuilder.build();
+        s3Presigner = presignerBuilder.build();
+
+        if (publicBaseUrl.isEmpty()) {
+            publicBaseUrl = endpoint.isEmpty()
+                    ? "https://" + bucket + ".s3." + region + ".amazonaws.com"
+                    : endpoint + "/" + bucket;
+        } else if (publicBaseUrl.endsWith("/")) {
+            publicBaseUrl = publicBaseUrl.substring(0, publicBaseUrl.length() - 1);
+        }
+
+        // Parts get their own pool: callers may already be running on the upload pool and join on the parts
+        partUploadExecutor = new ThreadPoolTaskExecutor();
+        partUploadExecutor.setCorePoolSize(uploadThreads);
+        partUploadExecutor.setMaxPoolSize(uploadThreads);
+        partUploadExecutor.setThreadNamePrefix("s3-part-upload-");
+        partUploadExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partUploadExecutor.shutdown();
+        s3Presigner.close();
+        s3Client.close();
+    }
+
+    @Override
+    public boolean storeIfAbsent(String key, Path source, String contentType) throws IOException {
+        try {
+            if (stat(key) != null) {
+                // Copying the object onto itself bumps LastModified, which keeps a concurrent delete away
+                s3Client.copyObject(builder -> builder
+                        .sourceBucket(bucket).sourceKey(key)
+                        .destinationBucket(bucket).destinationKey(key)
+                        .metadataDirective(MetadataDirective.REPLACE)
+                        .contentType(contentType)
+                        .cacheControl(CACHE_CONTROL));
+                return false;
+            }
+
+            long size = Files.size(source);
+            if (size >= multipartThreshold.toBytes()) {
+                uploadMultipart(key, source, size, contentType);
+            } else {
+                s3Client.putObject(builder -> builder
+                        .bucket(bucket).key(key)
+                        .contentType(contentType)
+                        .cacheControl(CACHE_CONTROL), RequestBody.fromFile(source));
+            }
+            return true;
+        } catch (SdkException e) {
+            throw new IOException("Failed to store " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Uploads the parts concurrently; the object only appears once every part has arrived
+    private void uploadMultipart(String key, Path source, long size, String contentType) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(builder -> builder
+                .bucket(bucket).key(key)
+                .contentType(contentType)
+                .cacheControl(CACHE_CONTROL)).uploadId();
+
+        try {
+            long partBytes = partSize.toBytes();
+            int partCount = (int) ((size + partBytes - 1) / partBytes);
+            List<CompletableFuture<CompletedPart>> parts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long offset = i * partBytes;
+                int length = (int) Math.min(partBytes, size - offset);
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String etag = s3Client.uploadPart(builder -> builder
+                                .bucket(bucket).key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length),
+                                RequestBody.fromByteBuffer(readPart(source, offset, length))).eTag();
+                        return CompletedPart.builder().partNumber(partNumber).eTag(etag).build();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, partUploadExecutor));
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(partCount);
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            s3Client.completeMultipartUpload(builder -> builder
+                    .bucket(bucket).key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(completedParts)));
+        } catch (CompletionException | SdkException e) {
+            // Don't leave billable parts behind
+            s3Client.abortMultipartUpload(builder -> builder.bucket(bucket).key(key).uploadId(uploadId));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Multipart upload of " + key + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private ByteBuffer readPart(Path source, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3Client.headObject(builder -> builder.bucket(bucket).key(key));
+            return new StorageObject(key, head.contentLength(), head.lastModified());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to look up " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3Client.getObject(builder -> builder.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Not atomic across nodes; the modification time check narrows the window to one round trip
+    @Override
+    public boolean deleteIfNotModifiedSince(String key, Instant cutoff) throws IOException {
+        StorageObject object = stat(key);
+        if (object == null || object.getLastModified().isAfter(cutoff)) {
+            return false;
+        }
+        try {
+            s3Client.deleteObject(builder -> builder.bucket(bucket).key(key));
+            return true;
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Stream<StorageObject> list(String prefix) {
+        // Pages of up to 1000 keys are fetched as the stream is consumed
+        return s3Client.listObjectsV2Paginator(builder -> builder.bucket(bucket).prefix(prefix + "/"))
+                .contents()
+                .stream()
+                .map(object -> new StorageObject(object.key(), object.size(), object.lastModified()));
+    }
+
+    @Override
+    public String publicUrl(String key) {
+        return publicBaseUrl + "/" + key;
+    }
+
+    @Override
+    public String keyFromUrl(String url) {
+        return url.startsWith(publicBaseUrl + "/") ? url.substring(publicBaseUrl.length() + 1) : "";
+    }
+
+    @Override
+    public boolean supportsDirectUpload() {
+        return true;
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, long size, String sha256Hex, Duration ttl) {
+        // The signed checksum makes the store verify the bytes, so the key can't be filled with other content
+        String checksum = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256Hex));
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucket).key(key)
+                .contentType(contentType)
+                .contentLength(size)
+                .checksumSHA256(checksum)
+                .cacheControl(CACHE_CONTROL)
+                .build();
+
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(builder -> builder
+                .signatureDuration(ttl)
+                .putObjectRequest(putObjectRequest));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            // Clients set Host themselves
+            if (!name.equalsIgnoreCase("host")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUpload(key, presigned.url().toString(), "PUT", headers, presigned.expiration());
+    }
+}
@@ -0,0 +1,16 @@
+package com.pgfinder.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageObject {
+    private String key;
+    private long size;
+    private Instant lastModified;
+}
@@ -0,0 +1,52 @@
+package com.pgfinder.util;
+
+import java.time.Instant;
+
+// The claims of a token that has already been verified by JwtUtil.parse; immutable, so it can be
+// passed around and cached instead of parsing the token again
+public final class JwtClaims {
+
+    private final String subject;
+    private final Long userId;
+    private final String userType;
+    private final String type;
+    private final Instant expiresAt;
+
+    public JwtClaims(String subject, Long userId, String userType, String type, Instant expiresAt) {
+        this.subject = subject;
+        this.userId = userId;
+        this.userType = userType;
+        this.type = type;
+        this.expiresAt = expiresAt;
+    }
+
+    // The user's email
+    public String getSubject() {
+        return subject;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    // "refresh" for refresh tokens, null for access tokens
+    public String getType() {
+        return type;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isRefreshToken() {
+        return JwtUtil.REFRESH_TYPE.equals(type);
+    }
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+}
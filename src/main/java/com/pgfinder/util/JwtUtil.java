@@ -1,7 +1,9 @@
 package com.pgfinder.util;
 
+import com.pgfinder.exception.InvalidTokenException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -10,11 +12,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
 
+    static final String REFRESH_TYPE = "refresh";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -24,56 +28,57 @@ public class JwtUtil {
     @Value("${jwt.refresh.expiration}")
     private Long refreshExpiration;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
-    public String extractUsername(String token) {
-        try {
-            return extractClaim(token, Claims::getSubject);
-        } catch (Exception e) {
-            throw new RuntimeException("Error extracting username from token", e);
-        }
-    }
-
-    public Date extractExpiration(String token) {
-        try {
-            return extractClaim(token, Claims::getExpiration);
-        } catch (Exception e) {
-            throw new RuntimeException("Error extracting expiration from token", e);
-        }
-    }
+    // Built once; both are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
-    private Claims extractAllClaims(String token) {
+    // Verifies the signature and expiry once; callers read everything they need from the result
+    public JwtClaims parse(String token) {
+        Claims claims;
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
-            throw new RuntimeException("JWT token is expired", e);
+            throw new InvalidTokenException("JWT token is expired");
         } catch (UnsupportedJwtException e) {
-            throw new RuntimeException("JWT token is unsupported", e);
+            throw new InvalidTokenException("JWT token is unsupported");
         } catch (MalformedJwtException e) {
-            throw new RuntimeException("JWT token is malformed", e);
+            throw new InvalidTokenException("JWT token is malformed");
         } catch (JwtException e) {
-            throw new RuntimeException("JWT signature validation failed", e);
+            throw new InvalidTokenException("JWT signature validation failed");
         } catch (IllegalArgumentException e) {
-            throw new RuntimeException("JWT token is invalid", e);
-        } catch (Exception e) {
-            throw new RuntimeException("JWT token processing failed", e);
+            throw new InvalidTokenException("JWT token is invalid");
+        }
+        
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            throw new InvalidTokenException("JWT token is missing required claims");
+        }
+        try {
+            return new JwtClaims(claims.getSubject(), claims.get("userId", Long.class),
+                    claims.get("userType", String.class), claims.get("type", String.class),
+                    claims.getExpiration().toInstant());
+        } catch (RequiredTypeException e) {
+            throw new InvalidTokenException("JWT token has malformed claims");
         }
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Like parse, but refresh tokens are not accepted as credentials
+    public JwtClaims validateAccessToken(String token) {
+        JwtClaims claims = parse(token);
+        if (claims.isRefreshToken()) {
+            throw new InvalidTokenException("Refresh tokens cannot be used for authentication");
+        }
+        if (claims.getUserId() == null || claims.getUserType() == null) {
+            throw new InvalidTokenException("JWT token is missing required claims");
+        }
+        return claims;
     }
 
     public String generateToken(String userEmail, String userType, Long userId) {
@@ -87,59 +92,36 @@ public class JwtUtil {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userType", userType);
         claims.put("userId", userId);
-        claims.put("type", "refresh");
+        claims.put("type", REFRESH_TYPE);
+        // Sessions are keyed by the token's hash, so two logins within the same second must still differ
+        claims.put(Claims.ID, UUID.randomUUID().toString());
         return createToken(claims, userEmail, refreshExpiration);
     }
 
     private String createToken(Map<String, Object> claims, String subject, Long expiration) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .claims(claims)
+                .subject(subject)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signingKey, Jwts.SIG.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, String userEmail) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(userEmail) && !isTokenExpired(token));
-        } catch (Exception e) {
+            return parse(token).getSubject().equals(userEmail);
+        } catch (InvalidTokenException e) {
             return false;
         }
     }
 
     public Boolean isTokenValid(String token) {
         try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    public String extractUserType(String token) {
-        try {
-            return extractClaim(token, claims -> claims.get("userType", String.class));
-        } catch (Exception e) {
-            throw new RuntimeException("Error extracting user type from token", e);
-        }
-    }
-
-    public Long extractUserId(String token) {
-        try {
-            return extractClaim(token, claims -> claims.get("userId", Long.class));
-        } catch (Exception e) {
-            throw new RuntimeException("Error extracting user ID from token", e);
-        }
-    }
-
-    public Boolean isRefreshToken(String token) {
-        try {
-            String type = extractClaim(token, claims -> claims.get("type", String.class));
-            return "refresh".equals(type);
-        } catch (Exception e) {
+            parse(token);
+            return true;
+        } catch (InvalidTokenException e) {
             return false;
         }
     }
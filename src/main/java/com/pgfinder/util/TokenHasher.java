@@ -0,0 +1,22 @@
+package com.pgfinder.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Tokens we hand out are stored as their SHA-256, so the database never holds a usable token.
+// The tokens are long and random, which is why a plain, unsalted hash is enough here.
+public final class TokenHasher {
+
+    private TokenHasher() {}
+
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.pgfinder.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.pgfinder.model.OutboxEmail;
+import com.pgfinder.repository.OutboxEmailRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Delivers the outbox to an in-process GreenMail SMTP server on port 3025, authenticating as the sender.
+// Rows are inserted straight into the table and deliverPending is called directly, so the test controls
+// every delivery run.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-test;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.jakarta.persistence.validation.mode=none",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=noreply@pgfinder.test",
+        "spring.mail.password=secret",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "app.upload.dir=target/test-uploads/",
+        "app.email.outbox.poll-interval=PT1H",
+        "app.email.outbox.max-attempts=3",
+        "app.email.outbox.backoff.initial=PT10M",
+        "app.email.outbox.backoff.max=PT1H"
+})
+class EmailOutboxWorkerIntegrationTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("noreply@pgfinder.test", "secret"));
+
+    @Autowired
+    private EmailOutboxWorker emailOutboxWorker;
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    @BeforeEach
+    void clearOutbox() {
+        outboxEmailRepository.deleteAll();
+    }
+
+    @Test
+    void deliversPendingEmailsAndMarksThemSent() throws Exception {
+        List<OutboxEmail> queued = outboxEmailRepository.saveAll(List.of(
+                new OutboxEmail("first@example.com", "Welcome", "Hello first"),
+                new OutboxEmail("second@example.com", "Welcome", "Hello second"),
+                new OutboxEmail("third@example.com", "Reset", "Hello third")));
+
+        emailOutboxWorker.deliverPending();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received[0].getFrom()[0].toString()).isEqualTo("noreply@pgfinder.test");
+        for (OutboxEmail email : queued) {
+            OutboxEmail stored = reload(email);
+            assertThat(stored.getStatus()).isEqualTo(OutboxEmail.Status.SENT);
+            assertThat(stored.getAttempts()).isEqualTo(1);
+            assertThat(stored.getSentAt()).isNotNull();
+            assertThat(stored.getClaimToken()).isNull();
+            assertThat(stored.getBody()).isEmpty();
+        }
+    }
+
+    @Test
+    void retriesWithBackoffWhileTheServerIsDown() throws Exception {
+        greenMail.stop();
+        OutboxEmail email = outboxEmailRepository.save(new OutboxEmail("retry@example.com", "Verify", "Body"));
+
+        LocalDateTime beforeAttempt = LocalDateTime.now();
+        emailOutboxWorker.deliverPending();
+
+        OutboxEmail failed = reload(email);
+        assertThat(failed.getStatus()).isEqualTo(OutboxEmail.Status.PENDING);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).isNotBlank();
+        assertThat(failed.getBody()).isEqualTo("Body");
+        // First retry after the initial backoff plus up to 20% jitter
+        assertThat(failed.getNextAttemptAt())
+                .isAfterOrEqualTo(beforeAttempt.plus(Duration.ofMinutes(10)))
+                .isBefore(LocalDateTime.now().plus(Duration.ofMinutes(12)).plusSeconds(1));
+
+        // Not due yet, so a run in the meantime leaves it alone
+        greenMail.start();
+        emailOutboxWorker.deliverPending();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        makeDue(email);
+        emailOutboxWorker.deliverPending();
+
+        OutboxEmail sent = reload(email);
+        assertThat(sent.getStatus()).isEqualTo(OutboxEmail.Status.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(2);
+        assertThat(sent.getLastError()).isNull();
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(greenMail.getReceivedMessages()[0].getContent().toString()).contains("Body");
+    }
+
+    @Test
+    void deadLettersAfterMaxAttemptsAndSweepsThemAfterRetention() {
+        greenMail.stop();
+        OutboxEmail email = outboxEmailRepository.save(new OutboxEmail("dead@example.com", "Verify", "Body"));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            makeDue(email);
+            emailOutboxWorker.deliverPending();
+        }
+
+        OutboxEmail dead = reload(email);
+        assertThat(dead.getStatus()).isEqualTo(OutboxEmail.Status.DEAD);
+        assertThat(dead.getAttempts()).isEqualTo(3);
+        assertThat(dead.getBody()).isEmpty();
+
+        // Dead letters stay put once the server is back
+        greenMail.start();
+        emailOutboxWorker.deliverPending();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        assertThat(reload(email).getStatus()).isEqualTo(OutboxEmail.Status.DEAD);
+
+        // Kept for the retention period, then swept along with old sent rows
+        emailOutboxWorker.removeFinishedEmails();
+        assertThat(outboxEmailRepository.existsById(email.getId())).isTrue();
+        OutboxEmail expired = reload(email);
+        expired.setNextAttemptAt(LocalDateTime.now().minusDays(8));
+        outboxEmailRepository.save(expired);
+        emailOutboxWorker.removeFinishedEmails();
+        assertThat(outboxEmailRepository.existsById(email.getId())).isFalse();
+    }
+
+    private OutboxEmail reload(OutboxEmail email) {
+        return outboxEmailRepository.findById(email.getId()).orElseThrow();
+    }
+
+    private void makeDue(OutboxEmail email) {
+        OutboxEmail stored = reload(email);
+        stored.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxEmailRepository.save(stored);
+    }
+}